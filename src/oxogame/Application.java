@@ -1,6 +1,11 @@
 package oxogame;
 
+import java.io.IOException;
+import java.util.Arrays;
+import oxogame.ai.StrategyFactory;
 import oxogame.game.Game;
+import oxogame.server.GameServer;
+import oxogame.server.NioGameServer;
 import oxogame.test.TestUI;
 import oxogame.userinterface.TextInterface;
 
@@ -12,7 +17,29 @@ import oxogame.userinterface.TextInterface;
  */
 public class Application {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+
+        // Hard System Players on the 3 x 3 board share the solved table, so
+        // it is loaded once here rather than when the first one is created
+        try {
+            StrategyFactory.loadSolvedTable();
+        } catch (IOException e) {
+            System.err.println("Unable to load the solved game table, Hard Players will search instead: "
+                    + e.getMessage());
+        }
+
+        // "--server [port]" hosts Games for clients on a local socket
+        // instead of playing one on the console
+        if (args.length > 0 && args[0].equals("--server")) {
+            GameServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        // "--nio-server [port]" does the same over non-blocking channels
+        if (args.length > 0 && args[0].equals("--nio-server")) {
+            NioGameServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
         // Determines whether to run the application in Test Mode (using the 
         // TestUI) or normal mode (using the regular UI)
@@ -0,0 +1,14 @@
+package oxogame.ai;
+
+/**
+ * Enumerator for how well a SystemPlayer plays.
+ *
+ * @author David Hemming
+ */
+public enum Difficulty {
+
+    // plays a random vacant Square
+    EASY,
+    // plays perfectly on the standard 3 x 3 board, and searches on others
+    HARD
+}
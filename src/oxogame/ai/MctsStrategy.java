@@ -0,0 +1,697 @@
+package oxogame.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import oxogame.board.BitBoard;
+import oxogame.board.Board;
+import oxogame.board.WinDetector;
+import oxogame.token.Token;
+
+/**
+ * A MoveStrategy that uses Monte Carlo Tree Search with the UCT selection
+ * rule.  Rather than search every line, it plays random games (playouts)
+ * from the position and grows a tree towards the moves that win most often,
+ * which makes it usable on boards far too large for NegamaxStrategy to
+ * search to the end.
+ *
+ * The search is root parallel: each thread grows its own tree for the whole
+ * time budget, and the move played is the one visited most often across all
+ * of the trees.  Trees are held in preallocated primitive arrays, so nothing
+ * is allocated while searching, and each tree is kept between moves and
+ * re-rooted on the position reached after the opponent's reply.
+ *
+ * An instance is not thread safe and should be used by a single
+ * SystemPlayer.  The number of playouts run is recorded so that throughput
+ * can be compared between machines.
+ *
+ * @author David Hemming
+ */
+public class MctsStrategy implements MoveStrategy {
+
+    // The UCT exploration constant, sqrt(2) for rewards between 0 and 1
+    private static final double EXPLORATION = Math.sqrt(2);
+    // The clock is only read once every this many playouts (must be 2^n - 1)
+    private static final int CLOCK_CHECK_MASK = 63;
+    // On boards with more Squares than this only Squares next to an existing
+    // Token are added to the tree, playouts still use every Square
+    private static final int NEIGHBOURHOOD_MIN_SQUARES = 36;
+
+    private final long timeBudgetNanos;
+    private final int nodesPerThread;
+    private final Worker[] workers;
+    private ExecutorService executor;
+    private long[] votes;
+    // a copy of the position being searched, the Board itself is read only
+    private BitBoard position;
+
+    private long lastPlayouts;
+    private long lastNanos;
+    private long totalPlayouts;
+    private long totalNanos;
+
+    /**
+     * Creates a strategy with a one second budget per move that searches on
+     * every available processor.
+     *
+     */
+    public MctsStrategy() {
+        this(1000);
+    }
+
+    /**
+     *
+     * @param timeBudgetMillis  the maximum time to spend choosing a move
+     */
+    public MctsStrategy(long timeBudgetMillis) {
+        this(timeBudgetMillis, Runtime.getRuntime().availableProcessors(), 1 << 18);
+    }
+
+    /**
+     *
+     * @param timeBudgetMillis  the maximum time to spend choosing a move
+     * @param threads           the number of trees searched in parallel
+     * @param nodesPerThread    the most nodes each tree can hold
+     */
+    public MctsStrategy(long timeBudgetMillis, int threads, int nodesPerThread) {
+
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is required");
+        }
+
+        timeBudgetNanos = timeBudgetMillis * 1000000L;
+        this.nodesPerThread = nodesPerThread;
+        workers = new Worker[threads];
+    }
+
+    @Override
+    public int chooseMove(Board board, Token token) {
+        if (position == null || position.getRows() != board.getRows()
+                || position.getCols() != board.getCols()) {
+            position = new BitBoard(board.getRows(), board.getCols());
+        }
+        board.copyTo(position);
+
+        long start = System.nanoTime();
+        long deadline = start + timeBudgetNanos;
+
+        for (int i = 0; i < workers.length; i++) {
+            if (workers[i] == null || !workers[i].fits(board)) {
+                workers[i] = new Worker(board, nodesPerThread, start + i * 0x9E3779B97F4A7C15L);
+            }
+            workers[i].setRoot(position, token, deadline);
+        }
+
+        runWorkers();
+
+        // add up the visits to each move over every tree, a move that wins at
+        // once outweighs them all
+        if (votes == null || votes.length != position.getSquareCount()) {
+            votes = new long[position.getSquareCount()];
+        }
+        Arrays.fill(votes, 0L);
+
+        long playouts = 0;
+
+        for (Worker worker : workers) {
+            playouts += worker.playouts;
+
+            for (int c = 0; c < worker.getRootChildCount(); c++) {
+                int move = worker.getRootChildMove(c);
+                votes[move] = worker.isRootChildWin(c) ? Long.MAX_VALUE
+                        : Math.min(votes[move] + worker.getRootChildVisits(c), Long.MAX_VALUE - 1);
+            }
+        }
+
+        int bestMove = -1;
+        long bestVotes = 0;
+
+        for (int move = 0; move < votes.length; move++) {
+            if (votes[move] > bestVotes) {
+                bestVotes = votes[move];
+                bestMove = move;
+            }
+        }
+
+        if (bestMove < 0) {
+            bestMove = workers[0].getAnyMove();
+        }
+
+        for (Worker worker : workers) {
+            worker.rootMovePlayed(bestMove);
+        }
+
+        lastPlayouts = playouts;
+        lastNanos = System.nanoTime() - start;
+        totalPlayouts += lastPlayouts;
+        totalNanos += lastNanos;
+
+        return bestMove;
+    }
+
+    /**
+     * Stops the threads used for searching.  The strategy can still be used
+     * afterwards, it starts new threads when it next needs them.
+     *
+     */
+    public void shutdown() {
+
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     *
+     * @return  the number of playouts run while choosing the last move
+     */
+    public long getLastPlayouts() {
+        return lastPlayouts;
+    }
+
+    /**
+     *
+     * @return  the number of playouts per second while choosing the last move
+     */
+    public double getLastPlayoutsPerSecond() {
+        return lastNanos == 0 ? 0 : lastPlayouts * 1e9 / lastNanos;
+    }
+
+    /**
+     *
+     * @return  the number of playouts run over every move chosen so far
+     */
+    public long getTotalPlayouts() {
+        return totalPlayouts;
+    }
+
+    /**
+     *
+     * @return  the number of playouts per second over every move chosen so
+     *          far
+     */
+    public double getPlayoutsPerSecond() {
+        return totalNanos == 0 ? 0 : totalPlayouts * 1e9 / totalNanos;
+    }
+
+    /**
+     *
+     * @return  the number of trees searched in parallel
+     */
+    public int getThreads() {
+        return workers.length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MCTS %d threads: %d playouts, %.0f playouts/s",
+                workers.length, totalPlayouts, getPlayoutsPerSecond());
+    }
+
+    /**
+     * Runs every Worker until the deadline.  The first runs on the calling
+     * thread and the rest on the strategy's threads.
+     *
+     */
+    private void runWorkers() {
+
+        if (workers.length == 1) {
+            workers[0].call();
+            return;
+        }
+
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(workers.length - 1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "mcts");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        List<Future<Void>> futures = new ArrayList<>(workers.length - 1);
+
+        for (int i = 1; i < workers.length; i++) {
+            futures.add(executor.submit(workers[i]));
+        }
+
+        workers[0].call();
+
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * One tree and the buffers needed to search it.  Node n's children are
+     * the nodes firstChild[n] to firstChild[n] + childCount[n] - 1, and each
+     * node's statistics are from the point of view of the side that made the
+     * move leading to it.
+     *
+     */
+    private static final class Worker implements Callable<Void> {
+
+        // the result of the game at a node, if it has ended
+        private static final byte UNKNOWN = 0;
+        private static final byte ONGOING = 1;
+        private static final byte WON = 2;
+        private static final byte DRAWN = 3;
+        // the side of a playout that no one won
+        private static final int DRAW = -1;
+
+        private final int rows;
+        private final int cols;
+        private final int winLength;
+        private final int capacity;
+        private final WinDetector winDetector;
+        private final BitBoard rootBoard;
+        private final BitBoard playoutBoard;
+        private final Token opponentPlaceholder = new Token('?');
+        // sideTokens[0] is the Token of the Player searching, [1] the opponent
+        private final Token[] sideTokens = new Token[2];
+
+        private final int[] moves;
+        private final int[] firstChild;
+        private final int[] childCount;
+        private final int[] visits;
+        // twice the reward, a win scores 2 and a draw 1
+        private final long[] scores;
+        private final byte[] movers;
+        private final byte[] results;
+        private int size;
+        private int root;
+
+        private final int[] path;
+        private final int[] vacant;
+        private long seed;
+        private long deadline;
+        long playouts;
+
+        Worker(Board board, int capacity, long seed) {
+            rows = board.getRows();
+            cols = board.getCols();
+            winLength = board.getWinLength();
+            this.capacity = capacity;
+            this.seed = seed == 0 ? 1 : seed;
+            winDetector = new WinDetector(board);
+            rootBoard = new BitBoard(rows, cols);
+            playoutBoard = new BitBoard(rows, cols);
+
+            moves = new int[capacity];
+            firstChild = new int[capacity];
+            childCount = new int[capacity];
+            visits = new int[capacity];
+            scores = new long[capacity];
+            movers = new byte[capacity];
+            results = new byte[capacity];
+
+            int squareCount = rows * cols;
+            path = new int[squareCount + 1];
+            vacant = new int[squareCount];
+        }
+
+        boolean fits(Board board) {
+            return rows == board.getRows() && cols == board.getCols()
+                    && winLength == board.getWinLength();
+        }
+
+        /**
+         * Moves the root of the tree to a position, keeping the subtree below
+         * it if the position follows on from the current root.
+         *
+         * @param position  the position to search
+         * @param token     the Token of the Player to move
+         * @param deadline  the time to stop searching, from System.nanoTime
+         */
+        void setRoot(BitBoard position, Token token, long deadline) {
+            this.deadline = deadline;
+            playouts = 0;
+
+            if (size == 0 || sideTokens[0] != token || !reroot(position)) {
+                sideTokens[0] = token;
+                sideTokens[1] = opponentPlaceholder;
+                clear();
+            }
+
+            rootBoard.copyFrom(position);
+            for (int slot = 0; slot < position.getTokenCount(); slot++) {
+                if (position.getSlotToken(slot) != token)
+                    sideTokens[1] = position.getSlotToken(slot);
+            }
+
+            results[root] = ONGOING;
+            if (childCount[root] == 0) {
+                expand(root, rootBoard);
+            }
+        }
+
+        /**
+         * Called once the move has been chosen, so that the next search can
+         * start from the subtree below it.
+         *
+         * @param move  the move that was played
+         */
+        void rootMovePlayed(int move) {
+            int child = findChild(root, move);
+
+            if (child < 0) {
+                clear();
+                return;
+            }
+
+            root = child;
+            rootBoard.placeToken(move, sideTokens[0]);
+        }
+
+        @Override
+        public Void call() {
+
+            do {
+                playout();
+            } while ((++playouts & CLOCK_CHECK_MASK) != 0 || System.nanoTime() < deadline);
+
+            return null;
+        }
+
+        int getRootChildCount() {
+            return childCount[root];
+        }
+
+        int getRootChildMove(int c) {
+            return moves[firstChild[root] + c];
+        }
+
+        int getRootChildVisits(int c) {
+            return visits[firstChild[root] + c];
+        }
+
+        boolean isRootChildWin(int c) {
+            return results[firstChild[root] + c] == WON;
+        }
+
+        int getAnyMove() {
+            rootBoard.getVacantSquares(vacant);
+            return vacant[0];
+        }
+
+        /**
+         * Selects a path down the tree, grows it by one node, plays the game
+         * out at random and records the result along the path.
+         *
+         */
+        private void playout() {
+            BitBoard board = playoutBoard;
+            int node = root;
+            int depth = 0;
+
+            board.copyFrom(rootBoard);
+            path[depth++] = node;
+
+            while (childCount[node] > 0 && results[node] != WON && results[node] != DRAWN) {
+                node = select(node);
+                play(node, board);
+                path[depth++] = node;
+            }
+
+            if (results[node] == ONGOING && visits[node] > 0 && expand(node, board)) {
+                node = firstChild[node];
+                play(node, board);
+                path[depth++] = node;
+            }
+
+            int winner;
+            if (results[node] == WON)
+                winner = movers[node];
+            else if (results[node] == DRAWN)
+                winner = DRAW;
+            else
+                winner = rollout(board, 1 - movers[node]);
+
+            for (int i = 0; i < depth; i++) {
+                int n = path[i];
+                visits[n]++;
+                if (winner == movers[n])
+                    scores[n] += 2;
+                else if (winner == DRAW)
+                    scores[n] += 1;
+            }
+        }
+
+        /**
+         * Chooses the child of a node to explore with the UCT rule.  Children
+         * that have not been visited are tried first, and a child that wins
+         * the game at once is always chosen.
+         *
+         */
+        private int select(int node) {
+            int first = firstChild[node];
+            int last = first + childCount[node];
+            double logVisits = Math.log(visits[node]);
+            double bestValue = Double.NEGATIVE_INFINITY;
+            int best = first;
+
+            for (int c = first; c < last; c++) {
+                if (visits[c] == 0 || results[c] == WON)
+                    return c;
+
+                double value = scores[c] / (2.0 * visits[c])
+                        + EXPLORATION * Math.sqrt(logVisits / visits[c]);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = c;
+                }
+            }
+
+            return best;
+        }
+
+        /**
+         * Plays a node's move on the playout board, working out whether it
+         * ends the game the first time the node is reached.
+         *
+         */
+        private void play(int node, BitBoard board) {
+            int move = moves[node];
+            Token token = sideTokens[movers[node]];
+
+            board.placeToken(move, token);
+
+            if (results[node] == UNKNOWN) {
+                if (winDetector.isWin(board, move, board.getSlot(token)))
+                    results[node] = WON;
+                else if (board.isFull())
+                    results[node] = DRAWN;
+                else
+                    results[node] = ONGOING;
+            }
+        }
+
+        /**
+         * Adds a child for every move from a node's position, if the tree has
+         * room for them.
+         *
+         * @return  true if the node was expanded
+         */
+        private boolean expand(int node, BitBoard board) {
+            int count = board.getVacantSquares(vacant);
+
+            if (board.getSquareCount() > NEIGHBOURHOOD_MIN_SQUARES) {
+                count = filterToNeighbourhood(board, count);
+            }
+
+            if (count == 0 || size + count > capacity) {
+                return false;
+            }
+
+            byte mover = (byte) (1 - movers[node]);
+
+            firstChild[node] = size;
+            childCount[node] = count;
+            for (int i = 0; i < count; i++) {
+                int c = size++;
+                moves[c] = vacant[i];
+                childCount[c] = 0;
+                visits[c] = 0;
+                scores[c] = 0;
+                movers[c] = mover;
+                results[c] = UNKNOWN;
+            }
+
+            return true;
+        }
+
+        /**
+         * Plays random moves until the game ends.
+         *
+         * @param board the position to play out, changed by the playout
+         * @param side  the side to move
+         * @return      the side that won, or DRAW
+         */
+        private int rollout(BitBoard board, int side) {
+            int count = board.getVacantSquares(vacant);
+
+            while (count > 0) {
+                int i = nextInt(count);
+                int move = vacant[i];
+                Token token = sideTokens[side];
+
+                vacant[i] = vacant[--count];
+                board.placeToken(move, token);
+
+                if (winDetector.isWin(board, move, board.getSlot(token)))
+                    return side;
+
+                side = 1 - side;
+            }
+
+            return DRAW;
+        }
+
+        /**
+         * Removes the moves that are not next to an existing Token.  On an
+         * empty board only the centre Square is kept.
+         *
+         */
+        private int filterToNeighbourhood(BitBoard board, int count) {
+
+            if (board.getOccupiedCount() == 0) {
+                vacant[0] = board.getIndex(rows / 2, cols / 2);
+                return 1;
+            }
+
+            int kept = 0;
+
+            for (int i = 0; i < count; i++) {
+                int x = vacant[i] / cols;
+                int y = vacant[i] % cols;
+                boolean hasNeighbour = false;
+
+                for (int nx = Math.max(0, x - 1); nx <= Math.min(rows - 1, x + 1) && !hasNeighbour; nx++) {
+                    for (int ny = Math.max(0, y - 1); ny <= Math.min(cols - 1, y + 1); ny++) {
+                        if (!board.canPlaceToken(nx * cols + ny)) {
+                            hasNeighbour = true;
+                            break;
+                        }
+                    }
+                }
+
+                if (hasNeighbour)
+                    vacant[kept++] = vacant[i];
+            }
+
+            return kept;
+        }
+
+        /**
+         * Follows the moves played since the root's position down the tree.
+         * Only works if the tree's root position is part of the new one, and
+         * the moves alternate between the two sides.  Once more than half the
+         * tree is in use it is cleared instead, since the nodes outside the
+         * new subtree cannot be reclaimed.
+         *
+         * @param position  the new position to search
+         * @return          true if the root was moved into the subtree
+         */
+        private boolean reroot(BitBoard position) {
+            int played = position.getOccupiedCount() - rootBoard.getOccupiedCount();
+
+            if (played < 0 || size > capacity / 2) {
+                return false;
+            }
+
+            // every Token on the root's board must still be in place
+            for (int slot = 0; slot < rootBoard.getTokenCount(); slot++) {
+                int newSlot = position.getSlot(rootBoard.getSlotToken(slot));
+                for (int w = 0; w < rootBoard.getWordCount(); w++) {
+                    long before = rootBoard.getSlotWord(slot, w);
+                    if (newSlot < 0 ? before != 0
+                            : (before & ~position.getSlotWord(newSlot, w)) != 0)
+                        return false;
+                }
+            }
+
+            int node = root;
+
+            for (int i = 0; i < played; i++) {
+                int first = firstChild[node];
+                int last = first + childCount[node];
+                int next = -1;
+
+                for (int c = first; c < last && next < 0; c++) {
+                    Token token = position.getToken(moves[c]);
+                    if (rootBoard.canPlaceToken(moves[c]) && token != null
+                            && isSide(token, movers[c]))
+                        next = c;
+                }
+
+                if (next < 0) {
+                    return false;
+                }
+                node = next;
+            }
+
+            root = node;
+            return true;
+        }
+
+        private boolean isSide(Token token, int side) {
+            return side == 0 ? token == sideTokens[0] : token != sideTokens[0];
+        }
+
+        private int findChild(int node, int move) {
+            int first = firstChild[node];
+
+            for (int c = first; c < first + childCount[node]; c++) {
+                if (moves[c] == move)
+                    return c;
+            }
+
+            return -1;
+        }
+
+        /**
+         * Empties the tree, leaving only a root for the opponent's last move.
+         *
+         */
+        private void clear() {
+            root = 0;
+            size = 1;
+            moves[0] = -1;
+            childCount[0] = 0;
+            visits[0] = 0;
+            scores[0] = 0;
+            movers[0] = 1;
+            results[0] = ONGOING;
+        }
+
+        /**
+         * Returns a pseudo random number from 0 to bound - 1, using xorshift
+         * so that playouts never allocate or contend on a shared Random.
+         *
+         */
+        private int nextInt(int bound) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 7;
+            seed ^= seed << 17;
+
+            return (int) ((seed >>> 33) % bound);
+        }
+
+    }
+
+}
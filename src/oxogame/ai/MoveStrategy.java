@@ -0,0 +1,23 @@
+package oxogame.ai;
+
+import oxogame.board.Board;
+import oxogame.token.Token;
+
+/**
+ * Interface that allows a SystemPlayer to delegate the choice of its next
+ * move to an interchangeable algorithm.
+ *
+ * @author David Hemming
+ */
+public interface MoveStrategy {
+
+    /**
+     * Chooses a vacant Square in which to place a Token.
+     *
+     * @param board the Board on which the move will be played
+     * @param token the Token of the Player whose turn it is
+     * @return      the index of the chosen Square, as returned by
+     *              Board.getIndex
+     */
+    public int chooseMove(Board board, Token token);
+}
@@ -0,0 +1,430 @@
+package oxogame.ai;
+
+import oxogame.board.BitBoard;
+import oxogame.board.Board;
+import oxogame.board.WinDetector;
+import oxogame.token.Token;
+
+/**
+ * A MoveStrategy that searches the game tree using negamax with alpha-beta
+ * pruning.  The search deepens one ply at a time until it runs out of moves
+ * or its time budget, and plays the best move of the deepest search that
+ * completed.  Results are cached in a TranspositionTable keyed by the Zobrist
+ * hash the BitBoard keeps of the position, and moves are ordered by the
+ * cached best move and a history of moves that caused cut-offs.
+ *
+ * The search works on a private BitBoard and preallocated buffers, so nothing
+ * is allocated while the tree is being searched.  An instance is not thread
+ * safe and should be used by a single SystemPlayer.
+ *
+ * @author David Hemming
+ */
+public class NegamaxStrategy implements MoveStrategy {
+
+    private static final int WIN = 1000000;
+    // Scores beyond this are wins or losses rather than evaluations
+    private static final int WIN_THRESHOLD = WIN - 10000;
+    private static final int INFINITY = WIN + 1;
+    // The clock is only read once every this many nodes (must be 2^n - 1)
+    private static final int CLOCK_CHECK_MASK = 1023;
+    // On boards with more Squares than this only Squares next to an existing
+    // Token are searched
+    private static final int NEIGHBOURHOOD_MIN_SQUARES = 36;
+
+    private final long timeBudgetNanos;
+    private final TranspositionTable table;
+    // Placeholder for the opponent's Token when they have not moved yet
+    private final Token opponentPlaceholder = new Token('?');
+    // sideTokens[0] is the Token of the Player searching, [1] the opponent
+    private final Token[] sideTokens = new Token[2];
+
+    // Buffers sized for the board being searched, reallocated only when the
+    // board size changes
+    private BitBoard searchBoard;
+    private WinDetector winDetector;
+    private int rows;
+    private int cols;
+    private int winLength;
+    private int[][] moveBuffer;
+    private int[] history;
+    private int[] windowSquares;
+    private int windowCount;
+
+    private long deadline;
+    private long nodes;
+    private boolean aborted;
+    private int rootBestMove;
+
+    /**
+     * Creates a strategy with a one second budget per move.
+     *
+     */
+    public NegamaxStrategy() {
+        this(1000);
+    }
+
+    /**
+     *
+     * @param timeBudgetMillis  the maximum time to spend choosing a move
+     */
+    public NegamaxStrategy(long timeBudgetMillis) {
+        this(timeBudgetMillis, 18);
+    }
+
+    /**
+     *
+     * @param timeBudgetMillis  the maximum time to spend choosing a move
+     * @param tableSizeBits     the transposition table holds 2^tableSizeBits
+     *                          entries
+     */
+    public NegamaxStrategy(long timeBudgetMillis, int tableSizeBits) {
+        timeBudgetNanos = timeBudgetMillis * 1000000L;
+        table = new TranspositionTable(tableSizeBits);
+    }
+
+    @Override
+    public int chooseMove(Board board, Token token) {
+        prepare(board);
+        board.copyTo(searchBoard);
+        sideTokens[0] = token;
+        sideTokens[1] = findOpponent(token);
+
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+
+        int empties = searchBoard.getSquareCount() - searchBoard.getOccupiedCount();
+        int bestMove = -1;
+
+        deadline = System.nanoTime() + timeBudgetNanos;
+        aborted = false;
+        nodes = 0;
+
+        for (int depth = 1; depth <= empties; depth++) {
+            rootBestMove = bestMove;
+            int score = negamax(depth, 0, -INFINITY, INFINITY, 0);
+
+            if (aborted)
+                break;
+
+            bestMove = rootBestMove;
+            if (Math.abs(score) > WIN_THRESHOLD)
+                break;
+        }
+
+        if (bestMove < 0) {
+            generateMoves(0, -1);
+            bestMove = moveBuffer[0][0];
+        }
+
+        return bestMove;
+    }
+
+    /**
+     * Searches a position to a fixed depth.
+     *
+     * @param depth the number of plies left to search
+     * @param ply   the number of plies from the root
+     * @param alpha the score the side to move is already assured of
+     * @param beta  the score the opponent is already assured of
+     * @param side  0 if the searching Player is to move, 1 for the opponent
+     * @return      the score of the position for the side to move
+     */
+    private int negamax(int depth, int ply, int alpha, int beta, int side) {
+        long hash = searchBoard.getHash();
+
+        if ((++nodes & CLOCK_CHECK_MASK) == 0 && System.nanoTime() > deadline) {
+            aborted = true;
+            return 0;
+        }
+
+        int alphaOriginal = alpha;
+        int ttMove = -1;
+        int entry = table.probe(hash);
+
+        if (entry >= 0) {
+            ttMove = table.getMove(entry);
+
+            if (ply > 0 && table.getDepth(entry) >= depth) {
+                int score = fromTable(table.getScore(entry), ply);
+                byte flag = table.getFlag(entry);
+
+                if (flag == TranspositionTable.EXACT)
+                    return score;
+                else if (flag == TranspositionTable.LOWER_BOUND)
+                    alpha = Math.max(alpha, score);
+                else
+                    beta = Math.min(beta, score);
+
+                if (alpha >= beta)
+                    return score;
+            }
+        }
+
+        if (depth == 0) {
+            return evaluate(side);
+        }
+
+        if (ply == 0 && rootBestMove >= 0) {
+            ttMove = rootBestMove;
+        }
+
+        int[] moves = moveBuffer[ply];
+        int moveCount = generateMoves(ply, ttMove);
+        Token token = sideTokens[side];
+        int best = -INFINITY;
+        int bestMove = -1;
+
+        for (int i = 0; i < moveCount; i++) {
+            int move = moves[i];
+            int score;
+
+            searchBoard.placeToken(move, token);
+
+            if (winDetector.isWin(searchBoard, move, searchBoard.getSlot(token))) {
+                score = WIN - ply - 1;
+            } else if (searchBoard.isFull()) {
+                score = 0;
+            } else {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha, 1 - side);
+            }
+
+            searchBoard.removeToken(move);
+
+            if (aborted)
+                return 0;
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (ply == 0)
+                    rootBestMove = move;
+            }
+
+            if (best > alpha)
+                alpha = best;
+
+            if (alpha >= beta) {
+                history[move] += depth * depth;
+                break;
+            }
+        }
+
+        byte flag;
+        if (best <= alphaOriginal)
+            flag = TranspositionTable.UPPER_BOUND;
+        else if (best >= beta)
+            flag = TranspositionTable.LOWER_BOUND;
+        else
+            flag = TranspositionTable.EXACT;
+
+        table.store(hash, depth, toTable(best, ply), flag, bestMove);
+
+        return best;
+    }
+
+    /**
+     * Writes the moves to search at a ply into the ply's move buffer, the
+     * preferred move first and the rest ordered by their history score.
+     *
+     * @param ply           the ply whose move buffer to fill
+     * @param preferredMove a move to search first, or -1
+     * @return              the number of moves in the buffer
+     */
+    private int generateMoves(int ply, int preferredMove) {
+        int[] moves = moveBuffer[ply];
+        int count = searchBoard.getVacantSquares(moves);
+
+        if (searchBoard.getSquareCount() > NEIGHBOURHOOD_MIN_SQUARES) {
+            count = filterToNeighbourhood(moves, count);
+        }
+
+        // insertion sort on history score, the preferred move always first
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int key = move == preferredMove ? Integer.MAX_VALUE : history[move];
+            int j = i - 1;
+
+            while (j >= 0 && (moves[j] == preferredMove ? Integer.MAX_VALUE
+                    : history[moves[j]]) < key) {
+                moves[j + 1] = moves[j];
+                j--;
+            }
+            moves[j + 1] = move;
+        }
+
+        return count;
+    }
+
+    /**
+     * Removes the moves that are not next to an existing Token.  On an empty
+     * board only the centre Square is kept.
+     *
+     * @param moves the vacant Squares
+     * @param count the number of vacant Squares
+     * @return      the number of moves kept
+     */
+    private int filterToNeighbourhood(int[] moves, int count) {
+
+        if (searchBoard.getOccupiedCount() == 0) {
+            moves[0] = searchBoard.getIndex(rows / 2, cols / 2);
+            return 1;
+        }
+
+        int kept = 0;
+
+        for (int i = 0; i < count; i++) {
+            int x = moves[i] / cols;
+            int y = moves[i] % cols;
+            boolean hasNeighbour = false;
+
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(rows - 1, x + 1) && !hasNeighbour; nx++) {
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(cols - 1, y + 1); ny++) {
+                    if (!searchBoard.canPlaceToken(nx * cols + ny)) {
+                        hasNeighbour = true;
+                        break;
+                    }
+                }
+            }
+
+            if (hasNeighbour)
+                moves[kept++] = moves[i];
+        }
+
+        return kept;
+    }
+
+    /**
+     * Scores a position that has not been searched to the end of the game.
+     * Every k-long window that holds only one side's Tokens counts for that
+     * side, and windows closer to completion count for more.
+     *
+     * @param side  the side to move
+     * @return      the score of the position for the side to move
+     */
+    private int evaluate(int side) {
+        int mySlot = searchBoard.getSlot(sideTokens[0]);
+        int theirSlot = searchBoard.getSlot(sideTokens[1]);
+        long score = 0;
+
+        for (int w = 0; w < windowCount; w++) {
+            int mine = 0;
+            int theirs = 0;
+
+            for (int i = w * winLength; i < (w + 1) * winLength; i++) {
+                int square = windowSquares[i];
+                if (mySlot >= 0 && searchBoard.isSlotAt(square, mySlot))
+                    mine++;
+                else if (theirSlot >= 0 && searchBoard.isSlotAt(square, theirSlot))
+                    theirs++;
+            }
+
+            if (theirs == 0 && mine > 0)
+                score += 1L << Math.min(2 * mine, 30);
+            else if (mine == 0 && theirs > 0)
+                score -= 1L << Math.min(2 * theirs, 30);
+        }
+
+        score = Math.max(-WIN_THRESHOLD, Math.min(WIN_THRESHOLD, score));
+
+        return side == 0 ? (int) score : (int) -score;
+    }
+
+    /**
+     * Finds the opponent's Token on the search board.
+     *
+     * @param token the Token of the Player searching
+     * @return      the opponent's Token, or a placeholder if the opponent has
+     *              not placed a Token yet
+     */
+    private Token findOpponent(Token token) {
+
+        for (int slot = 0; slot < searchBoard.getTokenCount(); slot++) {
+            if (searchBoard.getSlotToken(slot) != token)
+                return searchBoard.getSlotToken(slot);
+        }
+
+        return opponentPlaceholder;
+    }
+
+    /**
+     * Allocates the search buffers if this is the first search or the board
+     * size has changed since the last one.
+     *
+     * @param board the Board about to be searched
+     */
+    private void prepare(Board board) {
+
+        if (searchBoard != null && rows == board.getRows()
+                && cols == board.getCols() && winLength == board.getWinLength()) {
+            return;
+        }
+
+        rows = board.getRows();
+        cols = board.getCols();
+        winLength = board.getWinLength();
+
+        int squareCount = rows * cols;
+        searchBoard = new BitBoard(rows, cols);
+        winDetector = new WinDetector(board);
+        moveBuffer = new int[squareCount + 1][squareCount];
+        history = new int[squareCount];
+        table.clear();
+
+        initWindows();
+    }
+
+    /**
+     * Builds the list of every k-long window on the board as a flat array of
+     * Square indices, k indices per window.
+     *
+     */
+    private void initWindows() {
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        int[] squares = new int[4 * rows * cols * winLength];
+        int count = 0;
+
+        for (int[] d : directions) {
+            for (int x = 0; x < rows; x++) {
+                for (int y = 0; y < cols; y++) {
+                    int endX = x + d[0] * (winLength - 1);
+                    int endY = y + d[1] * (winLength - 1);
+                    if (endX < 0 || endX >= rows || endY < 0 || endY >= cols)
+                        continue;
+
+                    for (int i = 0; i < winLength; i++) {
+                        squares[count * winLength + i] = (x + d[0] * i) * cols + y + d[1] * i;
+                    }
+                    count++;
+                }
+            }
+        }
+
+        windowSquares = squares;
+        windowCount = count;
+    }
+
+    /**
+     * Converts a win or loss score from distance-to-root to distance-to-node
+     * before it is stored, so the entry is valid at any ply.
+     */
+    private static int toTable(int score, int ply) {
+        if (score > WIN_THRESHOLD)
+            return score + ply;
+        if (score < -WIN_THRESHOLD)
+            return score - ply;
+        return score;
+    }
+
+    /**
+     * The inverse of toTable.
+     */
+    private static int fromTable(int score, int ply) {
+        if (score > WIN_THRESHOLD)
+            return score - ply;
+        if (score < -WIN_THRESHOLD)
+            return score + ply;
+        return score;
+    }
+
+}
@@ -0,0 +1,190 @@
+package oxogame.ai;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ThreadLocalRandom;
+import oxogame.board.Board;
+import oxogame.board.CanonicalPosition;
+import oxogame.board.PositionCanonicaliser;
+
+/**
+ * A book of opening moves for one size of board, read from a file written
+ * by OpeningBookBuilder.  For each position in the first few plies the book
+ * holds the moves that did well in self-play, each with a weight, and a move
+ * is chosen at random in proportion to the weights.
+ *
+ * Positions are stored under their canonical key (see PositionCanonicaliser)
+ * so one entry covers every rotation and reflection of a position, and moves
+ * are stored on the canonical board.  The file is a header followed by
+ * entries of (key, move, weight) sorted by key and then move.  It is memory
+ * mapped and searched in place with a binary search, so loading the book
+ * costs no more than opening the file, and looking a position up reads only
+ * a handful of entries.
+ *
+ * A loaded book is never changed, so it can be shared between threads.
+ *
+ * @author David Hemming
+ */
+public class OpeningBook {
+
+    public static final String DEFAULT_FILE = "oxoBook.dat";
+
+    static final int MAGIC = 0x4F584F42;    // "OXOB"
+    static final int VERSION = 1;
+    // magic, version, rows, cols, win length, plies, entry count, unused
+    static final int HEADER_SIZE = 32;
+    // key, move, weight
+    static final int ENTRY_SIZE = 16;
+
+    private final MappedByteBuffer entries;
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+    private final int maxPlies;
+    private final int entryCount;
+    private final PositionCanonicaliser canonicaliser;
+
+    private OpeningBook(MappedByteBuffer entries) {
+        this.entries = entries;
+        rows = entries.getInt(8);
+        cols = entries.getInt(12);
+        winLength = entries.getInt(16);
+        maxPlies = entries.getInt(20);
+        entryCount = entries.getInt(24);
+        canonicaliser = new PositionCanonicaliser(rows, cols);
+    }
+
+    /**
+     * Loads a book from a file.
+     *
+     * @param file          the file holding the book
+     * @return              the loaded book
+     * @throws IOException  if the file cannot be read or is not a book
+     *                      written by this version of the application
+     */
+    public static OpeningBook load(File file) throws IOException {
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+
+            if (size < HEADER_SIZE || raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+                throw new IOException(file.getPath() + " is not an opening book");
+            }
+
+            raf.seek(24);
+            if (size != HEADER_SIZE + (long) raf.readInt() * ENTRY_SIZE) {
+                throw new IOException(file.getPath() + " is incomplete");
+            }
+
+            // the mapping stays valid after the channel is closed
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Chooses a move for the position on a Board, at random in proportion to
+     * the weights of the book's moves.
+     *
+     * @param board the Board on which the move will be played
+     * @return      the index of the chosen Square, or -1 if the position is
+     *              not in the book
+     */
+    public int chooseMove(Board board) {
+        if (!fits(board) || board.getOccupiedCount() >= maxPlies) {
+            return -1;
+        }
+
+        CanonicalPosition position = canonicaliser.canonicalise(board);
+        int first = findFirst(position.getKey());
+        int last = first;
+        long totalWeight = 0;
+
+        while (last < entryCount && getKey(last) == position.getKey()) {
+            totalWeight += getWeight(last);
+            last++;
+        }
+
+        if (totalWeight == 0) {
+            return -1;
+        }
+
+        long n = ThreadLocalRandom.current().nextLong(totalWeight);
+        int entry = first;
+
+        while (n >= getWeight(entry)) {
+            n -= getWeight(entry);
+            entry++;
+        }
+
+        int move = position.fromCanonical(getMove(entry));
+
+        return board.isSquareVacant(move) ? move : -1;
+    }
+
+    /**
+     * Checks to see if the book was built for the size of a Board.
+     *
+     * @param board the Board to check
+     * @return      true if the book covers games on the Board
+     *              false otherwise
+     */
+    public boolean fits(Board board) {
+        return rows == board.getRows() && cols == board.getCols()
+                && winLength == board.getWinLength();
+    }
+
+    /**
+     *
+     * @return  the number of plies from the start of a game the book covers
+     */
+    public int getMaxPlies() {
+        return maxPlies;
+    }
+
+    /**
+     *
+     * @return  the number of (position, move) entries in the book
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Finds the first entry whose key is not less than a key.
+     *
+     * @param key   the key to search for
+     * @return      the index of the entry, entryCount if every key is less
+     */
+    private int findFirst(long key) {
+        int low = 0;
+        int high = entryCount;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (getKey(mid) < key)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        return low;
+    }
+
+    private long getKey(int entry) {
+        return entries.getLong(HEADER_SIZE + entry * ENTRY_SIZE);
+    }
+
+    private int getMove(int entry) {
+        return entries.getInt(HEADER_SIZE + entry * ENTRY_SIZE + 8);
+    }
+
+    private int getWeight(int entry) {
+        return entries.getInt(HEADER_SIZE + entry * ENTRY_SIZE + 12);
+    }
+
+}
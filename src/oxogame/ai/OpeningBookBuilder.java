@@ -0,0 +1,226 @@
+package oxogame.ai;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import oxogame.board.BitBoard;
+import oxogame.board.CanonicalPosition;
+import oxogame.board.PositionCanonicaliser;
+import oxogame.game.GameEngine;
+import oxogame.player.Player;
+import oxogame.player.SystemPlayer;
+import oxogame.token.Token;
+
+/**
+ * Builds an OpeningBook offline from the results of games, usually self-play
+ * between two SystemPlayers on a GameEngine.
+ *
+ * Every move made in the first few plies of a game scores points for the
+ * position it was made from: 2 if the side that made it went on to win, 1
+ * for a draw and nothing for a loss.  The points a move has collected over
+ * all of the games become its weight in the book, and moves that never
+ * scored are left out.
+ *
+ * @author David Hemming
+ */
+public class OpeningBookBuilder {
+
+    // the side of a game that no one won
+    public static final int DRAW = -1;
+
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+    private final int maxPlies;
+    private final PositionCanonicaliser canonicaliser;
+    private final BitBoard board;
+    // stand-ins for the two sides while games are replayed, slot 0 moves first
+    private final Token[] sides = {new Token('1'), new Token('2')};
+    // the points of each move, on the canonical board, by canonical key
+    private final Map<Long, int[]> points = new HashMap<>();
+    private int games;
+
+    /**
+     *
+     * @param rows      the number of rows on the board
+     * @param cols      the number of columns on the board
+     * @param winLength the number of Tokens in a row needed to win
+     * @param maxPlies  the number of plies from the start of a game to
+     *                  record
+     */
+    public OpeningBookBuilder(int rows, int cols, int winLength, int maxPlies) {
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+        this.maxPlies = maxPlies;
+        canonicaliser = new PositionCanonicaliser(rows, cols);
+        board = new BitBoard(rows, cols);
+    }
+
+    /**
+     * Records the opening of a game.
+     *
+     * @param moves         the Square index of each move, in order
+     * @param moveCount     the number of moves in the game
+     * @param winningSide   0 if the side that moved first won, 1 if the other
+     *                      side won, or DRAW
+     */
+    public void addGame(int[] moves, int moveCount, int winningSide) {
+        board.reset();
+
+        for (int ply = 0; ply < Math.min(moveCount, maxPlies); ply++) {
+            int side = ply % 2;
+            CanonicalPosition position = canonicaliser.canonicalise(board);
+            int[] movePoints = points.get(position.getKey());
+
+            if (movePoints == null) {
+                movePoints = new int[rows * cols];
+                points.put(position.getKey(), movePoints);
+            }
+
+            movePoints[position.toCanonical(moves[ply])] +=
+                    winningSide == side ? 2 : winningSide == DRAW ? 1 : 0;
+            board.placeToken(moves[ply], sides[side]);
+        }
+
+        games++;
+    }
+
+    /**
+     * Plays games between two Players and records each of them.  The Players
+     * take turns to move first.
+     *
+     * @param engine    an engine with a board of the size being built for
+     * @param first     the first Player
+     * @param second    the second Player
+     * @param games     the number of games to play
+     */
+    public void selfPlay(GameEngine engine, Player first, Player second, int games) {
+        int[] moves = new int[rows * cols];
+
+        for (int i = 0; i < games; i++) {
+            Player starter = i % 2 == 0 ? first : second;
+            Player other = starter == first ? second : first;
+            Player winner = engine.playGame(starter, other);
+
+            for (int ply = 0; ply < engine.getMoveCount(); ply++) {
+                moves[ply] = engine.getMove(ply);
+            }
+
+            addGame(moves, engine.getMoveCount(),
+                    winner == null ? DRAW : winner == starter ? 0 : 1);
+        }
+    }
+
+    /**
+     *
+     * @return  the number of games recorded
+     */
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * Writes the book, sorted by key and then move.  The book is written to a
+     * temporary file first, so an interrupted write never leaves a partial
+     * book behind.
+     *
+     * @param file          the file to write the book to
+     * @return              the number of entries written
+     * @throws IOException  if the file cannot be written
+     */
+    public int write(File file) throws IOException {
+        List<Long> keys = new ArrayList<>(points.keySet());
+        int entryCount = 0;
+
+        // sorted as signed longs, the order OpeningBook searches in
+        Collections.sort(keys);
+
+        for (int[] movePoints : points.values()) {
+            for (int p : movePoints) {
+                if (p > 0)
+                    entryCount++;
+            }
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeInt(winLength);
+            out.writeInt(maxPlies);
+            out.writeInt(entryCount);
+            out.writeInt(0);
+
+            for (long key : keys) {
+                int[] movePoints = points.get(key);
+                for (int move = 0; move < movePoints.length; move++) {
+                    if (movePoints[move] > 0) {
+                        out.writeLong(key);
+                        out.writeInt(move);
+                        out.writeInt(movePoints[move]);
+                    }
+                }
+            }
+        }
+
+        if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+            throw new IOException("Unable to create " + file.getPath());
+        }
+
+        return entryCount;
+    }
+
+    /**
+     * Builds a book from self-play between two MCTS players.
+     *
+     * @param args  rows cols winLength plies games millisPerMove [file]
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 6) {
+            System.out.println("Usage: OpeningBookBuilder rows cols winLength plies games millisPerMove [file]");
+            return;
+        }
+
+        int rows = Integer.parseInt(args[0]);
+        int cols = Integer.parseInt(args[1]);
+        int winLength = Integer.parseInt(args[2]);
+        int plies = Integer.parseInt(args[3]);
+        int games = Integer.parseInt(args[4]);
+        long millis = Long.parseLong(args[5]);
+        File file = new File(args.length > 6 ? args[6] : OpeningBook.DEFAULT_FILE);
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(rows, cols, winLength, plies);
+        MctsStrategy firstStrategy = new MctsStrategy(millis);
+        MctsStrategy secondStrategy = new MctsStrategy(millis);
+        Player first = new SystemPlayer("Book 1", new Token('X'), firstStrategy);
+        Player second = new SystemPlayer("Book 2", new Token('O'), secondStrategy);
+
+        try {
+            builder.selfPlay(new GameEngine(rows, cols, winLength), first, second, games);
+        } finally {
+            first.release();
+            second.release();
+            firstStrategy.shutdown();
+            secondStrategy.shutdown();
+        }
+
+        int entries = builder.write(file);
+        System.out.println("Wrote " + entries + " moves from " + builder.getGames()
+                + " games to " + file.getPath());
+    }
+
+}
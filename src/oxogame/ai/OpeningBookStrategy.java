@@ -0,0 +1,57 @@
+package oxogame.ai;
+
+import oxogame.board.Board;
+import oxogame.token.Token;
+
+/**
+ * A MoveStrategy that plays from an OpeningBook while the position is in
+ * the book, and hands over to another strategy once it is not.  The opening,
+ * where there are the most moves to consider, then costs only a lookup.
+ *
+ * @author David Hemming
+ */
+public class OpeningBookStrategy implements MoveStrategy {
+
+    private final OpeningBook book;
+    private final MoveStrategy fallback;
+    private long bookMoves;
+
+    /**
+     *
+     * @param book      the book of opening moves
+     * @param fallback  the strategy used once the position is out of book
+     */
+    public OpeningBookStrategy(OpeningBook book, MoveStrategy fallback) {
+        this.book = book;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public int chooseMove(Board board, Token token) {
+        int move = book.chooseMove(board);
+
+        if (move >= 0) {
+            bookMoves++;
+            return move;
+        }
+
+        return fallback.chooseMove(board, token);
+    }
+
+    /**
+     *
+     * @return  the number of moves played from the book
+     */
+    public long getBookMoves() {
+        return bookMoves;
+    }
+
+    /**
+     *
+     * @return  the strategy used once the position is out of book
+     */
+    public MoveStrategy getFallback() {
+        return fallback;
+    }
+
+}
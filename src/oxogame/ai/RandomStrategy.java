@@ -0,0 +1,44 @@
+package oxogame.ai;
+
+import java.util.concurrent.ThreadLocalRandom;
+import oxogame.board.Board;
+import oxogame.token.Token;
+
+/**
+ * A MoveStrategy that chooses a vacant Square at random.
+ *
+ * @author David Hemming
+ */
+public class RandomStrategy implements MoveStrategy {
+
+    /**
+     * Picks a number n below the number of vacant Squares and then finds the
+     * nth vacant Square in the Board's masks, so that choosing a move
+     * allocates nothing.
+     *
+     * @param board the Board on which the move will be played
+     * @param token the Token of the Player whose turn it is
+     * @return      the index of a randomly chosen vacant Square
+     */
+    @Override
+    public int chooseMove(Board board, Token token) {
+        int n = ThreadLocalRandom.current().nextInt(
+                board.getSquareCount() - board.getOccupiedCount());
+
+        for (int w = 0; ; w++) {
+            long vacant = board.getVacantWord(w);
+            int count = Long.bitCount(vacant);
+
+            if (n < count) {
+                // clear the n lowest vacant bits, the lowest left is the move
+                for (int i = 0; i < n; i++) {
+                    vacant &= vacant - 1;
+                }
+                return (w << 6) + Long.numberOfTrailingZeros(vacant);
+            }
+
+            n -= count;
+        }
+    }
+
+}
@@ -0,0 +1,260 @@
+package oxogame.ai;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A table holding the solution of every position of standard 3 x 3 Tic Tac
+ * Toe that can be reached in play: whether the Player to move wins, draws or
+ * loses with perfect play, and every move that achieves that result.
+ *
+ * The table is generated the first time it is needed and saved to a file.
+ * Later runs memory-map the file, so loading takes no longer than opening it.
+ * The file is a header followed by one 16-bit entry for every arrangement of
+ * the 3 x 3 board, indexed by reading the board as a base 3 number (0 vacant,
+ * 1 the Player to move, 2 the opponent, Square 0 the least significant digit).
+ *
+ * @author David Hemming
+ */
+public class SolvedGameTable {
+
+    public static final String DEFAULT_FILE = "oxoSolved.dat";
+
+    // Results for the Player to move
+    public static final int LOSS = 0;
+    public static final int DRAW = 1;
+    public static final int WIN = 2;
+
+    private static final int MAGIC = 0x4F584F54;    // "OXOT"
+    private static final int VERSION = 1;
+    private static final int SQUARES = 9;
+    private static final int POSITIONS = 19683;     // 3^9
+    private static final int HEADER_SIZE = 16;
+    private static final int FILE_SIZE = HEADER_SIZE + POSITIONS * 2;
+
+    // Entry layout: bits 0-8 best moves, bits 9-10 result, bit 15 reachable
+    private static final int MOVES_MASK = 0x1FF;
+    private static final int RESULT_SHIFT = 9;
+    private static final int REACHABLE = 0x8000;
+
+    private static final int[] LINES = {
+        0x007, 0x038, 0x1C0,    // rows
+        0x049, 0x092, 0x124,    // columns
+        0x111, 0x054            // diagonals
+    };
+
+    // BASE3[mask] is the base 3 number with a 1 digit for every bit of mask
+    private static final int[] BASE3 = new int[1 << SQUARES];
+
+    static {
+        for (int mask = 0; mask < BASE3.length; mask++) {
+            int value = 0;
+            for (int i = SQUARES - 1; i >= 0; i--) {
+                value = value * 3 + ((mask >> i) & 1);
+            }
+            BASE3[mask] = value;
+        }
+    }
+
+    private final MappedByteBuffer entries;
+    private final int reachablePositions;
+
+    private SolvedGameTable(MappedByteBuffer entries) {
+        this.entries = entries;
+        reachablePositions = entries.getInt(12);
+    }
+
+    /**
+     * Loads the table from the default file, generating the file first if it
+     * does not exist.
+     *
+     * @return              the loaded table
+     * @throws IOException  if the file cannot be read or written
+     */
+    public static SolvedGameTable load() throws IOException {
+        return load(new File(DEFAULT_FILE));
+    }
+
+    /**
+     * Loads the table from a file, generating the file first if it does not
+     * exist or was not written by this version of the application.
+     *
+     * @param file          the file holding the table
+     * @return              the loaded table
+     * @throws IOException  if the file cannot be read or written
+     */
+    public static SolvedGameTable load(File file) throws IOException {
+
+        if (!isValidFile(file)) {
+            write(file);
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            // the mapping stays valid after the channel is closed
+            return new SolvedGameTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, FILE_SIZE));
+        }
+    }
+
+    /**
+     * Returns the moves that achieve the best result for the Player to move.
+     *
+     * @param mine      the mask of Squares held by the Player to move
+     * @param theirs    the mask of Squares held by the opponent
+     * @return          a mask with a bit set for every best move, 0 if the
+     *                  game is already over or the position is unreachable
+     */
+    public int getBestMoves(int mine, int theirs) {
+        return getEntry(mine, theirs) & MOVES_MASK;
+    }
+
+    /**
+     * Returns the result of a position with perfect play from both sides.
+     *
+     * @param mine      the mask of Squares held by the Player to move
+     * @param theirs    the mask of Squares held by the opponent
+     * @return          WIN, DRAW or LOSS for the Player to move
+     */
+    public int getResult(int mine, int theirs) {
+        return (getEntry(mine, theirs) >> RESULT_SHIFT) & 3;
+    }
+
+    /**
+     * Checks to see if a position can be reached in a game.
+     *
+     * @param mine      the mask of Squares held by the Player to move
+     * @param theirs    the mask of Squares held by the opponent
+     * @return          true if the position is in the table
+     *                  false otherwise
+     */
+    public boolean isReachable(int mine, int theirs) {
+        return (getEntry(mine, theirs) & REACHABLE) != 0;
+    }
+
+    /**
+     *
+     * @return  the number of reachable positions held in the table
+     */
+    public int getReachablePositions() {
+        return reachablePositions;
+    }
+
+    private int getEntry(int mine, int theirs) {
+        return entries.getShort(HEADER_SIZE + (BASE3[mine] + 2 * BASE3[theirs]) * 2) & 0xFFFF;
+    }
+
+    /**
+     * Checks that a file exists and has the header and size of a table
+     * written by this version of the application.
+     *
+     */
+    private static boolean isValidFile(File file) throws IOException {
+
+        if (!file.isFile() || file.length() != FILE_SIZE) {
+            return false;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return raf.readInt() == MAGIC && raf.readInt() == VERSION
+                    && raf.readInt() == POSITIONS;
+        }
+    }
+
+    /**
+     * Solves every reachable position and writes the table to a file.  The
+     * table is written to a temporary file first, so an interrupted write
+     * never leaves a partial table behind.
+     *
+     */
+    private static void write(File file) throws IOException {
+        short[] table = new short[POSITIONS];
+        int reachable = 0;
+
+        solve(0, 0, table);
+
+        for (short entry : table) {
+            if ((entry & REACHABLE) != 0)
+                reachable++;
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(POSITIONS);
+            out.writeInt(reachable);
+            for (short entry : table) {
+                out.writeShort(entry);
+            }
+        }
+
+        if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+            throw new IOException("Unable to create " + file.getPath());
+        }
+    }
+
+    /**
+     * Solves a position and every position reachable from it, recording the
+     * results in the table.
+     *
+     * @param mine      the mask of Squares held by the Player to move
+     * @param theirs    the mask of Squares held by the opponent
+     * @param table     the table of solved positions
+     * @return          the result for the Player to move
+     */
+    private static int solve(int mine, int theirs, short[] table) {
+        int index = BASE3[mine] + 2 * BASE3[theirs];
+
+        if ((table[index] & REACHABLE) != 0) {
+            return (table[index] >> RESULT_SHIFT) & 3;
+        }
+
+        int result;
+        int bestMoves = 0;
+
+        if (hasLine(theirs)) {
+            result = LOSS;
+        } else if ((mine | theirs) == MOVES_MASK) {
+            result = DRAW;
+        } else {
+            result = -1;
+            for (int i = 0; i < SQUARES; i++) {
+                int bit = 1 << i;
+                if (((mine | theirs) & bit) != 0)
+                    continue;
+
+                // the opponent's result after the move is the inverse of ours
+                int moveResult = WIN - solve(theirs, mine | bit, table);
+                if (moveResult > result) {
+                    result = moveResult;
+                    bestMoves = bit;
+                } else if (moveResult == result) {
+                    bestMoves |= bit;
+                }
+            }
+        }
+
+        table[index] = (short) (REACHABLE | (result << RESULT_SHIFT) | bestMoves);
+
+        return result;
+    }
+
+    private static boolean hasLine(int mask) {
+
+        for (int line : LINES) {
+            if ((mask & line) == line)
+                return true;
+        }
+
+        return false;
+    }
+
+}
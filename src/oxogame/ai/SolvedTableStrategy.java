@@ -0,0 +1,60 @@
+package oxogame.ai;
+
+import java.util.concurrent.ThreadLocalRandom;
+import oxogame.board.Board;
+import oxogame.token.Token;
+
+/**
+ * A MoveStrategy that plays standard 3 x 3 Tic Tac Toe perfectly by looking
+ * the position up in a SolvedGameTable.  When several moves are equally good
+ * one of them is chosen at random.
+ *
+ * @author David Hemming
+ */
+public class SolvedTableStrategy implements MoveStrategy {
+
+    private final SolvedGameTable table;
+
+    /**
+     *
+     * @param table the solved positions of the 3 x 3 game
+     */
+    public SolvedTableStrategy(SolvedGameTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Looks up the best moves for the Player to move and picks one.
+     *
+     * @param board the Board on which the move will be played, which must be
+     *              a 3 x 3 board with three in a row to win
+     * @param token the Token of the Player whose turn it is
+     * @return      the index of a best move
+     */
+    @Override
+    public int chooseMove(Board board, Token token) {
+
+        if (board.getRows() != 3 || board.getCols() != 3 || board.getWinLength() != 3) {
+            throw new IllegalArgumentException("Solved table only covers the 3 x 3 game");
+        }
+
+        int slot = board.getSlot(token);
+        int occupied = (int) board.getOccupiedWord(0);
+        int mine = slot < 0 ? 0 : (int) board.getSlotWord(slot, 0);
+        int moves = table.getBestMoves(mine, occupied & ~mine);
+
+        if (moves == 0) {
+            // not a position that arises in play, e.g. the same Player moved
+            // twice, so fall back to any vacant Square
+            moves = (int) board.getVacantWord(0);
+        }
+
+        // pick the n-th set bit for a random n
+        for (int n = ThreadLocalRandom.current().nextInt(Integer.bitCount(moves)); n > 0; n--) {
+            moves &= moves - 1;
+        }
+
+        return Integer.numberOfTrailingZeros(moves);
+    }
+
+}
@@ -0,0 +1,119 @@
+package oxogame.ai;
+
+import java.io.File;
+import java.io.IOException;
+import oxogame.board.Board;
+
+/**
+ * Creates the MoveStrategy of a SystemPlayer for a Difficulty and a Board.
+ *
+ * The SolvedGameTable is shared by every SystemPlayer.  It should be loaded
+ * once at startup with loadSolvedTable, otherwise it is loaded the first time
+ * a HARD Player is created for the standard 3 x 3 board.
+ *
+ * When an OpeningBook has been built (see OpeningBookBuilder) for the Board
+ * being played on, HARD Players that search play their opening moves from
+ * it.  The book is loaded the first time such a Player is created.
+ *
+ * @author David Hemming
+ */
+public class StrategyFactory {
+
+    private static SolvedGameTable solvedTable;
+    private static OpeningBook openingBook;
+
+    /**
+     * Loads the SolvedGameTable, generating its file first if necessary.
+     *
+     * @return              the loaded table
+     * @throws IOException  if the table's file cannot be read or written
+     */
+    public static synchronized SolvedGameTable loadSolvedTable() throws IOException {
+
+        if (solvedTable == null) {
+            solvedTable = SolvedGameTable.load();
+        }
+
+        return solvedTable;
+    }
+
+    /**
+     * Creates a strategy for a SystemPlayer.  A HARD Player on the standard
+     * 3 x 3 board plays from the SolvedGameTable, or searches the whole game
+     * tree if the table cannot be loaded.  On every other board it runs a
+     * parallel Monte Carlo Tree Search, whose threads are stopped when the
+     * SystemPlayer is released.  Searches play from the OpeningBook while
+     * the position is in it.
+     *
+     * @param difficulty    how well the Player should play
+     * @param board         the Board the Player will play on
+     * @return              the strategy for the Player
+     */
+    public static MoveStrategy create(Difficulty difficulty, Board board) {
+
+        if (difficulty == Difficulty.EASY) {
+            return new RandomStrategy();
+        }
+
+        if (isStandardBoard(board)) {
+            try {
+                return new SolvedTableStrategy(loadSolvedTable());
+            } catch (IOException e) {
+                // the search is perfect on this board too, only slower
+                return withBook(new NegamaxStrategy(), board);
+            }
+        }
+
+        return withBook(new MctsStrategy(), board);
+    }
+
+    /**
+     * Loads the OpeningBook from its default file, unless it has already
+     * been loaded.
+     *
+     * @return  the loaded book, or null if there is no book or it cannot be
+     *          read
+     */
+    public static synchronized OpeningBook loadOpeningBook() {
+        File file = new File(OpeningBook.DEFAULT_FILE);
+
+        if (openingBook == null && file.isFile()) {
+            try {
+                openingBook = OpeningBook.load(file);
+            } catch (IOException e) {
+                // the book is optional, the Player searches from the start
+            }
+        }
+
+        return openingBook;
+    }
+
+    /**
+     *
+     * @param search    the strategy that searches for moves
+     * @param board     the Board the Player will play on
+     * @return          the search, played from the OpeningBook if there is
+     *                  one for the Board
+     */
+    private static MoveStrategy withBook(MoveStrategy search, Board board) {
+        OpeningBook book = loadOpeningBook();
+
+        if (book == null || !book.fits(board)) {
+            return search;
+        }
+
+        return new OpeningBookStrategy(book, search);
+    }
+
+    /**
+     *
+     * @param board the Board to check
+     * @return      true if the Board is the 3 x 3 board covered by the
+     *              SolvedGameTable
+     *              false otherwise
+     */
+    private static boolean isStandardBoard(Board board) {
+        return board.getRows() == 3 && board.getCols() == 3 && board.getWinLength() == 3;
+    }
+
+}
@@ -0,0 +1,107 @@
+package oxogame.ai;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size hash table of search results, keyed by a 64-bit position hash.
+ * Entries are held in parallel primitive arrays so that storing and probing
+ * never allocates.  When two positions map to the same slot the entry that
+ * was searched to the greater depth is kept.
+ *
+ * @author David Hemming
+ */
+public class TranspositionTable {
+
+    // The stored score is exact, or is a lower or upper bound on the true
+    // score because the search of the position was cut off
+    public static final byte EXACT = 0;
+    public static final byte LOWER_BOUND = 1;
+    public static final byte UPPER_BOUND = 2;
+
+    private final long[] keys;
+    private final int[] scores;
+    private final int[] moves;
+    private final byte[] depths;
+    private final byte[] flags;
+    private final boolean[] used;
+    private final int mask;
+
+    /**
+     *
+     * @param sizeBits  the table holds 2^sizeBits entries
+     */
+    public TranspositionTable(int sizeBits) {
+        int size = 1 << sizeBits;
+
+        keys = new long[size];
+        scores = new int[size];
+        moves = new int[size];
+        depths = new byte[size];
+        flags = new byte[size];
+        used = new boolean[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Finds the entry for a position.
+     *
+     * @param key   the hash of the position
+     * @return      the index of the entry, or -1 if the position is not in
+     *              the table
+     */
+    public int probe(long key) {
+        int i = (int) (key ^ (key >>> 32)) & mask;
+
+        return used[i] && keys[i] == key ? i : -1;
+    }
+
+    /**
+     * Stores the result of searching a position, unless the slot already holds
+     * a deeper search of a different position.
+     *
+     * @param key   the hash of the position
+     * @param depth the depth the position was searched to
+     * @param score the score of the position
+     * @param flag  EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param move  the best move found, or -1 if there was none
+     */
+    public void store(long key, int depth, int score, byte flag, int move) {
+        int i = (int) (key ^ (key >>> 32)) & mask;
+
+        if (used[i] && keys[i] != key && depths[i] > depth) {
+            return;
+        }
+
+        keys[i] = key;
+        depths[i] = (byte) Math.min(depth, Byte.MAX_VALUE);
+        scores[i] = score;
+        flags[i] = flag;
+        moves[i] = move;
+        used[i] = true;
+    }
+
+    /**
+     * Removes every entry from the table.
+     *
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+    }
+
+    public int getDepth(int entry) {
+        return depths[entry];
+    }
+
+    public int getScore(int entry) {
+        return scores[entry];
+    }
+
+    public byte getFlag(int entry) {
+        return flags[entry];
+    }
+
+    public int getMove(int entry) {
+        return moves[entry];
+    }
+
+}
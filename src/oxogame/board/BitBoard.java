@@ -0,0 +1,464 @@
+
+package oxogame.board;
+
+import java.util.Arrays;
+import oxogame.token.Token;
+
+/**
+ * Class that represents the contents of a Board as a set of bit masks.  Each
+ * Square on the Board is assigned a single bit (index = x * cols + y), every
+ * Token that has been placed on the Board owns a mask of the Squares it
+ * occupies, and an occupancy mask records every Square that holds a Token.
+ *
+ * Masks are stored as arrays of 64-bit words so that boards of any size can
+ * be represented, bit i of a mask is bit (i % 64) of word (i / 64).  Boards
+ * of up to 64 Squares therefore fit in a single word.
+ *
+ * Placing, testing and clearing Tokens are all single bit operations, which
+ * makes this class suitable for code that needs to query a Board many times
+ * without walking the Square grid.
+ *
+ * A Zobrist hash of the position is kept up to date as Tokens are placed and
+ * removed (see ZobristKeys).  Because slot 0 always belongs to the Token that
+ * moved first, the hash identifies the position independently of which
+ * symbols the Players chose.
+ *
+ * @author David Hemming
+ */
+public class BitBoard {
+
+    private final int rows;
+    private final int cols;
+    private final int squareCount;
+    private final int wordCount;
+    // Tokens are assigned a slot the first time they are placed on the Board,
+    // tokenMasks[slot] holds the Squares occupied by tokens[slot]
+    private Token[] tokens;
+    private long[][] tokenMasks;
+    // zobristKeys[slot][index] is XORed into the hash when the Token in slot
+    // is placed on or removed from the Square at index
+    private long[][] zobristKeys;
+    private long hash;
+    private int tokenCount;
+    private final long[] occupied;
+    private int occupiedCount;
+
+    /**
+     *
+     * @param rows  the number of rows on the Board
+     * @param cols  the number of columns on the Board
+     */
+    public BitBoard(int rows, int cols) {
+
+        if (rows < 1 || cols < 1) {
+            throw new IllegalArgumentException("Board must have at least one row and one column");
+        }
+
+        this.rows = rows;
+        this.cols = cols;
+        squareCount = rows * cols;
+        wordCount = (squareCount + Long.SIZE - 1) / Long.SIZE;
+        tokens = new Token[2];
+        tokenMasks = new long[2][wordCount];
+        zobristKeys = new long[][] {ZobristKeys.getKeys(0, squareCount),
+                ZobristKeys.getKeys(1, squareCount)};
+        tokenCount = 0;
+        hash = 0;
+        occupied = new long[wordCount];
+        occupiedCount = 0;
+    }
+
+    /**
+     * Clears every Token from the Board.
+     *
+     */
+    public void reset() {
+
+        for (int i = 0; i < tokenCount; i++) {
+            tokens[i] = null;
+            Arrays.fill(tokenMasks[i], 0L);
+        }
+
+        Arrays.fill(occupied, 0L);
+        tokenCount = 0;
+        occupiedCount = 0;
+        hash = 0;
+    }
+
+    /**
+     * Checks to see if a Square, as identified by its index, is vacant.
+     *
+     * @param index the index of the Square to interrogate
+     * @return      true if the index is on the Board and the Square is vacant
+     *              false otherwise
+     */
+    public boolean canPlaceToken(int index) {
+
+        return index >= 0 && index < squareCount
+                && (occupied[index >>> 6] & (1L << index)) == 0;
+    }
+
+    /**
+     * Attempts to place a Token in the Square identified by an index.
+     *
+     * @param index the index of the Square in which to place the Token
+     * @param t     the Token to place
+     * @return      true if the Token was placed
+     *              false if the Square is not on the Board or is occupied
+     */
+    public boolean placeToken(int index, Token t) {
+
+        if (!canPlaceToken(index)) {
+            return false;
+        }
+
+        long bit = 1L << index;
+        int slot = getOrAssignSlot(t);
+        tokenMasks[slot][index >>> 6] |= bit;
+        occupied[index >>> 6] |= bit;
+        occupiedCount++;
+        hash ^= zobristKeys[slot][index];
+
+        return true;
+    }
+
+    /**
+     * Removes the Token from the Square identified by an index, the inverse
+     * of placeToken.  The Token keeps its slot.
+     *
+     * @param index the index of the Square to clear
+     * @return      true if a Token was removed
+     *              false if the Square was already vacant
+     */
+    public boolean removeToken(int index) {
+        int slot = getSlotAt(index);
+
+        if (slot < 0) {
+            return false;
+        }
+
+        long bit = ~(1L << index);
+        tokenMasks[slot][index >>> 6] &= bit;
+        occupied[index >>> 6] &= bit;
+        occupiedCount--;
+        hash ^= zobristKeys[slot][index];
+
+        return true;
+    }
+
+    /**
+     * Makes this BitBoard a copy of another BitBoard of the same size.  Token
+     * slots are copied as well, so slots mean the same thing on both boards.
+     *
+     * @param other the BitBoard to copy
+     */
+    public void copyFrom(BitBoard other) {
+
+        if (other.rows != rows || other.cols != cols) {
+            throw new IllegalArgumentException("Boards must be the same size");
+        }
+
+        reset();
+        ensureSlotCapacity(other.tokenCount);
+
+        for (int i = 0; i < other.tokenCount; i++) {
+            tokens[i] = other.tokens[i];
+            System.arraycopy(other.tokenMasks[i], 0, tokenMasks[i], 0, wordCount);
+        }
+
+        System.arraycopy(other.occupied, 0, occupied, 0, wordCount);
+        tokenCount = other.tokenCount;
+        occupiedCount = other.occupiedCount;
+        hash = other.hash;
+    }
+
+    /**
+     * Returns the Token in the Square identified by an index.
+     *
+     * @param index the index of the Square to interrogate
+     * @return      the Token occupying the Square, or null if it is vacant
+     */
+    public Token getToken(int index) {
+        int slot = getSlotAt(index);
+
+        return slot < 0 ? null : tokens[slot];
+    }
+
+    /**
+     * Returns the slot of the Token in the Square identified by an index.
+     *
+     * @param index the index of the Square to interrogate
+     * @return      the slot of the Token occupying the Square, or -1 if the
+     *              Square is vacant
+     */
+    public int getSlotAt(int index) {
+        int word = index >>> 6;
+        long bit = 1L << index;
+
+        if ((occupied[word] & bit) != 0) {
+            for (int i = 0; i < tokenCount; i++) {
+                if ((tokenMasks[i][word] & bit) != 0)
+                    return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the slot that holds a Token's mask.  Slots are assigned in the
+     * order Tokens are first placed, so after a reset slot 0 belongs to the
+     * Token that moves first.
+     *
+     * @param t the Token to look up
+     * @return  the slot assigned to the Token, or -1 if the Token is not on
+     *          the Board
+     */
+    public int getSlot(Token t) {
+
+        for (int i = 0; i < tokenCount; i++) {
+            if (tokens[i] == t)
+                return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     *
+     * @param slot  the slot to look up
+     * @return      the Token assigned to the slot
+     */
+    public Token getSlotToken(int slot) {
+        return tokens[slot];
+    }
+
+    /**
+     *
+     * @return  the number of Tokens that have been assigned a slot
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Checks to see if the Square identified by an index holds the Token in
+     * a slot.
+     *
+     * @param index the index of the Square to interrogate
+     * @param slot  the slot of the Token
+     * @return      true if the Square holds the Token
+     *              false otherwise
+     */
+    public boolean isSlotAt(int index, int slot) {
+        return (tokenMasks[slot][index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Returns one word of the mask of Squares occupied by the Token in a slot.
+     *
+     * @param slot  the slot of the Token, as returned by getSlot
+     * @param word  the word of the mask to return
+     * @return      the requested word of the Token's mask
+     */
+    public long getSlotWord(int slot, int word) {
+        return tokenMasks[slot][word];
+    }
+
+    /**
+     *
+     * @param word  the word of the mask to return
+     * @return      the requested word of the mask of occupied Squares
+     */
+    public long getOccupiedWord(int word) {
+        return occupied[word];
+    }
+
+    /**
+     *
+     * @param word  the word of the mask to return
+     * @return      the requested word of the mask of vacant Squares
+     */
+    public long getVacantWord(int word) {
+        return ~occupied[word] & getBoardWord(word);
+    }
+
+    /**
+     * Writes the index of every vacant Square into a caller supplied buffer,
+     * in ascending order.
+     *
+     * @param buffer    an array with room for at least getSquareCount() indices
+     * @return          the number of indices written to the buffer
+     */
+    public int getVacantSquares(int[] buffer) {
+        int count = 0;
+
+        for (int w = 0; w < wordCount; w++) {
+            long vacant = getVacantWord(w);
+            while (vacant != 0) {
+                buffer[count++] = (w << 6) + Long.numberOfTrailingZeros(vacant);
+                vacant &= vacant - 1;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Checks to see if a row contains at least one vacant Square.
+     *
+     * @param x the x-axis of the row
+     * @return  true if at least one Square in the row is vacant
+     *          false otherwise
+     */
+    public boolean hasVacancyInRow(int x) {
+
+        for (int y = 0; y < cols; y++) {
+            if (canPlaceToken(getIndex(x, y)))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks to see if a column contains at least one vacant Square.
+     *
+     * @param y the y-axis of the column
+     * @return  true if at least one Square in the column is vacant
+     *          false otherwise
+     */
+    public boolean hasVacancyInCol(int y) {
+
+        for (int x = 0; x < rows; x++) {
+            if (canPlaceToken(getIndex(x, y)))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the Zobrist hash of the position.  Two BitBoards of the same size
+     * holding the same Tokens in the same slots have the same hash.
+     *
+     * @return  the hash of the position, 0 for an empty board
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     *
+     * @return  the number of occupied Squares
+     */
+    public int getOccupiedCount() {
+        return occupiedCount;
+    }
+
+    /**
+     *
+     * @return  true if every Square on the Board is occupied
+     *          false otherwise
+     */
+    public boolean isFull() {
+        return occupiedCount == squareCount;
+    }
+
+    /**
+     *
+     * @param x the x-axis of the Square
+     * @param y the y-axis of the Square
+     * @return  the index of the Square located at x y
+     */
+    public int getIndex(int x, int y) {
+        return x * cols + y;
+    }
+
+    /**
+     *
+     * @return  the number of rows on the Board
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     *
+     * @return  the number of columns on the Board
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     *
+     * @return  the number of Squares on the Board
+     */
+    public int getSquareCount() {
+        return squareCount;
+    }
+
+    /**
+     *
+     * @return  the number of 64-bit words in each mask
+     */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Returns a word with a bit set for every Square of the Board that falls
+     * within it.  Only the last word can be partially filled.
+     *
+     * @param word  the word of the mask to return
+     * @return      the requested word of the mask of all Squares
+     */
+    private long getBoardWord(int word) {
+        int bits = squareCount - (word << 6);
+
+        return bits >= Long.SIZE ? -1L : (1L << bits) - 1;
+    }
+
+    /**
+     * Returns the slot that holds a Token's mask, assigning it a new slot if
+     * this is the first time the Token has been placed on the Board.
+     *
+     * @param t the Token to look up
+     * @return  the slot assigned to the Token
+     */
+    private int getOrAssignSlot(Token t) {
+        int slot = getSlot(t);
+
+        if (slot >= 0) {
+            return slot;
+        }
+
+        ensureSlotCapacity(tokenCount + 1);
+        tokens[tokenCount] = t;
+
+        return tokenCount++;
+    }
+
+    /**
+     * Grows the slot arrays so that they can hold at least a number of Tokens.
+     *
+     * @param capacity  the number of Tokens the slot arrays must hold
+     */
+    private void ensureSlotCapacity(int capacity) {
+
+        if (capacity > tokens.length) {
+            int length = Math.max(capacity, tokens.length * 2);
+            int oldLength = tokens.length;
+
+            tokens = Arrays.copyOf(tokens, length);
+            tokenMasks = Arrays.copyOf(tokenMasks, length);
+            zobristKeys = Arrays.copyOf(zobristKeys, length);
+            for (int i = oldLength; i < length; i++) {
+                tokenMasks[i] = new long[wordCount];
+                zobristKeys[i] = ZobristKeys.getKeys(i, squareCount);
+            }
+        }
+    }
+
+}
@@ -2,12 +2,19 @@
 package oxogame.board;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import oxogame.token.Token;
 
 /**
- * Class that represents a 3 x 3 board (grid).  The board is composed of 
- * squares (locations), in which Tokens can be placed by Players.
+ * Class that represents an m x n board (grid), by default 3 x 3.  The board 
+ * is composed of squares (locations), in which Tokens can be placed by 
+ * Players.  A game on the board is won by the first Player to place k Tokens
+ * in a row, where k is the win length of the board.
+ * 
+ * The contents of the board are held in a BitBoard, this class provides a
+ * Square based view on top of it.  The Squares are kept in step with the
+ * BitBoard whenever a Token is placed or the board is reset.
  * 
  * @author David Hemming
  * @date 8 October 2013
@@ -15,12 +22,42 @@ import oxogame.token.Token;
  */
 public class Board {
         
-    private final int ROWS = 3;
-    private final int COLS = 3;
+    private final int ROWS;
+    private final int COLS;
+    // The number of Tokens in a row needed to win a game on this board
+    private final int WIN_LENGTH;
     private final List<List<Square>> squareGrid;
+    // The rows, columns and diagonals never change so they are built once
+    private final List<List<Square>> colList;
+    private final List<List<Square>> diagonalList;
+    // Squares indexed by BitBoard index (x * COLS + y)
+    private final Square[] squares;
+    private final BitBoard bitBoard;
     
     public Board() {
+        this(3, 3, 3);
+    }
+    
+    /**
+     *
+     * @param rows      the number of rows on the board
+     * @param cols      the number of columns on the board
+     * @param winLength the number of Tokens in a row needed to win a game
+     */
+    public Board(int rows, int cols, int winLength) {
+        
+        if (winLength < 1 || winLength > Math.max(rows, cols)) {
+            throw new IllegalArgumentException("Win length must fit on the board");
+        }
+        
+        ROWS = rows;
+        COLS = cols;
+        WIN_LENGTH = winLength;
         squareGrid = new ArrayList<>();
+        colList = new ArrayList<>();
+        diagonalList = new ArrayList<>();
+        squares = new Square[ROWS * COLS];
+        bitBoard = new BitBoard(ROWS, COLS);
         initBoard();
     }
     
@@ -32,13 +69,32 @@ public class Board {
      */
     private void initBoard() {
         
-        for (int x = 0; x < COLS; x++) {
+        for (int x = 0; x < ROWS; x++) {
             List<Square> row = new ArrayList<>();
-            for (int y = 0; y < ROWS; y++) {
-                row.add(new Square(x, y));
+            for (int y = 0; y < COLS; y++) {
+                Square s = new Square(x, y);
+                row.add(s);
+                squares[getIndex(x, y)] = s;
+            }
+            squareGrid.add(Collections.unmodifiableList(row));
+        }
+        
+        for (int y = 0; y < COLS; y++) {
+            List<Square> col = new ArrayList<>();
+            for (int x = 0; x < ROWS; x++) {
+                col.add(getSquare(x, y));
             }
-            squareGrid.add(row);
+            colList.add(Collections.unmodifiableList(col));
         }
+        
+        List<Square> diagonal = new ArrayList<>();
+        List<Square> antiDiagonal = new ArrayList<>();
+        for (int row = 0; row < Math.min(ROWS, COLS); row++) {
+            diagonal.add(getSquare(row, row));
+            antiDiagonal.add(getSquare(row, COLS - 1 - row));
+        }
+        diagonalList.add(Collections.unmodifiableList(diagonal));
+        diagonalList.add(Collections.unmodifiableList(antiDiagonal));
     }
     
     /**
@@ -49,11 +105,16 @@ public class Board {
      */
     void resetBoard() {
         
-        for (List<Square> l : squareGrid) {
-            for (Square s : l) {
-                s.setToken(null);
+        // only the occupied Squares need to be cleared
+        for (int w = 0; w < bitBoard.getWordCount(); w++) {
+            long occupied = bitBoard.getOccupiedWord(w);
+            while (occupied != 0) {
+                squares[(w << 6) + Long.numberOfTrailingZeros(occupied)].setToken(null);
+                occupied &= occupied - 1;
             }
         }
+        
+        bitBoard.reset();
     }
     
     /**
@@ -68,7 +129,8 @@ public class Board {
      */
     public boolean canPlaceToken(int x, int y) {
         
-        return isRowValid(x) && isColValid(y) && isSquareVacant(x, y);
+        return isRowValid(x) && isColValid(y)
+                && bitBoard.canPlaceToken(getIndex(x, y));
        
     }
     
@@ -95,12 +157,7 @@ public class Board {
      */
     public boolean canPlaceTokenInRow(int x) {
         
-        for (Square s : getRow(x)) {
-            if (isSquareVacant(s))
-                return true;
-        }
-        
-        return false;
+        return bitBoard.hasVacancyInRow(x);
     }
     
     /**
@@ -113,12 +170,7 @@ public class Board {
      */
     public boolean canPlaceTokenInCol(int y) {
         
-        for (Square s : getCol(y)) {
-            if (isSquareVacant(s))
-                return true;
-        }
-        
-        return false;
+        return bitBoard.hasVacancyInCol(y);
     }
     
     /**
@@ -131,7 +183,7 @@ public class Board {
      */
     public boolean isRowValid(int x) {
         
-        return x >= 0 && x <= ROWS;
+        return x >= 0 && x < ROWS;
     }
     
     /**
@@ -144,7 +196,7 @@ public class Board {
      */
     public boolean isColValid(int y) {
         
-        return y >= 0 && y <= COLS;
+        return y >= 0 && y < COLS;
     }
         
     /**
@@ -172,8 +224,44 @@ public class Board {
      */
     boolean placeToken(Square s, Token t) {
         
-        if (canPlaceToken(s.getXcoord(), s.getYcoord())) {
-            getSquare(s.getXcoord(), s.getYcoord()).setToken(t);
+        if (isSquareValid(s)) {
+            return placeToken(getIndex(s.getXcoord(), s.getYcoord()), t);
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Attempts to place a supplied Token in the Square identified by an index.
+     * 
+     * @param index the index of the Square, as returned by getIndex
+     * @param t     a Token to place in the Square
+     * @return      true if Token was successfully placed on the desired Square
+     *              false otherwise
+     */
+    boolean placeToken(int index, Token t) {
+        
+        if (bitBoard.placeToken(index, t)) {
+            squares[index].setToken(t);
+            
+            return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Removes the Token from the Square identified by an index, the inverse
+     * of placeToken.
+     * 
+     * @param index the index of the Square, as returned by getIndex
+     * @return      true if a Token was removed
+     *              false if the Square was already vacant
+     */
+    boolean removeToken(int index) {
+        
+        if (bitBoard.removeToken(index)) {
+            squares[index].setToken(null);
             
             return true;
         }
@@ -202,13 +290,8 @@ public class Board {
      * @return  a column of Squares from the Board
      */
     public List<Square> getCol(int y) {
-        List<Square> col = new ArrayList<>();
         
-        for (int i = 0; i < COLS; i++) {
-            col.add(getSquare(i, y));
-        }
-        
-        return col;
+        return colList.get(y);
     }
     
     /**
@@ -219,19 +302,8 @@ public class Board {
      * @return  either one of two possible diagonal sequences of Squares
      */
     public List<Square> getDiagonal(int y) {
-        List<Square> diagonal = new ArrayList<>();
-        int col = y;
-        
-        for (int row = 0; row < ROWS; row++) {
-           
-           diagonal.add(getSquare(row, col));
-           if (y == 0)
-                col++;
-            else
-                col--;
-        }
         
-        return diagonal;
+        return diagonalList.get(y == 0 ? 0 : 1);
     }
     
     /**
@@ -242,18 +314,32 @@ public class Board {
      * @return  a List of Squares that are vacant
      */
     public List<Square> getVacantSquareList() {
-        List<Square> vacantSquareList = new ArrayList<>();
+        List<Square> vacantSquareList = new ArrayList<>(
+                squares.length - bitBoard.getOccupiedCount());
         
-        for (List<Square> row : squareGrid) {
-            for (Square s : row) {
-                if (isSquareVacant(s))
-                    vacantSquareList.add(s);
+        for (int w = 0; w < bitBoard.getWordCount(); w++) {
+            long vacant = bitBoard.getVacantWord(w);
+            while (vacant != 0) {
+                vacantSquareList.add(squares[(w << 6) + Long.numberOfTrailingZeros(vacant)]);
+                vacant &= vacant - 1;
             }
         }
         
         return vacantSquareList;
     }
     
+    /**
+     * Writes the index of every vacant Square into a caller supplied buffer,
+     * in ascending order.  Unlike getVacantSquareList nothing is allocated,
+     * so this is the method to use when choosing moves in a loop.
+     *
+     * @param buffer    an array with room for at least rows * cols indices
+     * @return          the number of indices written to the buffer
+     */
+    public int getVacantSquares(int[] buffer) {
+        return bitBoard.getVacantSquares(buffer);
+    }
+    
     /**
      * Checks to see if a supplied x y location on the Board contains a Square
      * that is vacant.
@@ -265,7 +351,7 @@ public class Board {
      *          false otherwise
      */
     public boolean isSquareVacant(int x, int y) {
-        return getSquare(x,y).getToken() == null;
+        return bitBoard.canPlaceToken(getIndex(x, y));
     }
     
     /**
@@ -279,7 +365,7 @@ public class Board {
      *                  false otherwise
      */
     public boolean isSquareVacant(Square square) {
-        return getSquare(square.getXcoord(), square.getYcoord()).getToken() == null;
+        return isSquareVacant(square.getXcoord(), square.getYcoord());
     }
     
     /**
@@ -291,7 +377,135 @@ public class Board {
      * @return  a Square that is located at the coordinates x y
      */
     public Square getSquare(int x, int y) {
-        return squareGrid.get(x).get(y);
+        return squares[getIndex(x, y)];
+    }
+    
+    /**
+     * Returns a Square from the Board identified by its index.
+     *
+     * @param index the index of the Square, as returned by getIndex
+     * @return      the Square located at the index
+     */
+    public Square getSquare(int index) {
+        return squares[index];
+    }
+    
+    /**
+     * Returns the index of the Square located at a supplied x y axis.  The
+     * index identifies the Square's bit in the BitBoard.
+     *
+     * @param x the x-axis of the Square
+     * @param y the y-axis of the Square
+     * @return  the index of the Square
+     */
+    public int getIndex(int x, int y) {
+        return x * COLS + y;
+    }
+    
+    /**
+     * Returns the Zobrist hash of the Tokens on the Board.  The hash is kept
+     * up to date as Tokens are placed and when the Board is reset, so it can
+     * be used to key caches of positions without reading the Squares.
+     *
+     * @return  the hash of the position, 0 for an empty Board
+     */
+    public long getHash() {
+        return bitBoard.getHash();
+    }
+    
+    /**
+     * Takes an immutable snapshot of the Tokens on the Board, which can be
+     * shared with other threads while play continues.
+     *
+     * @return  a Position holding the Board's current Tokens
+     */
+    public Position snapshot() {
+        return Position.of(bitBoard);
+    }
+    
+    /**
+     * Copies the contents of the Board into a caller supplied BitBoard, for
+     * strategies that need a board of their own to search.
+     *
+     * @param target    a BitBoard the same size as this Board
+     */
+    public void copyTo(BitBoard target) {
+        target.copyFrom(bitBoard);
+    }
+    
+    /**
+     * Checks to see if the Square identified by an index is vacant.
+     *
+     * @param index the index of the Square, as returned by getIndex
+     * @return      true if the Square is on the Board and vacant
+     *              false otherwise
+     */
+    public boolean isSquareVacant(int index) {
+        return bitBoard.canPlaceToken(index);
+    }
+    
+    /**
+     * Returns the slot that holds a Token's mask, see BitBoard.getSlot.
+     *
+     * @param t the Token to look up
+     * @return  the slot assigned to the Token, or -1 if it is not on the Board
+     */
+    public int getSlot(Token t) {
+        return bitBoard.getSlot(t);
+    }
+    
+    /**
+     *
+     * @param slot  the slot of a Token, as returned by getSlot
+     * @param word  the word of the mask to return
+     * @return      the requested word of the mask of the Token's Squares
+     */
+    public long getSlotWord(int slot, int word) {
+        return bitBoard.getSlotWord(slot, word);
+    }
+    
+    /**
+     *
+     * @param word  the word of the mask to return
+     * @return      the requested word of the mask of occupied Squares
+     */
+    public long getOccupiedWord(int word) {
+        return bitBoard.getOccupiedWord(word);
+    }
+    
+    /**
+     *
+     * @param word  the word of the mask to return
+     * @return      the requested word of the mask of vacant Squares
+     */
+    public long getVacantWord(int word) {
+        return bitBoard.getVacantWord(word);
+    }
+    
+    /**
+     *
+     * @return  the number of Squares holding a Token
+     */
+    public int getOccupiedCount() {
+        return bitBoard.getOccupiedCount();
+    }
+    
+    /**
+     *
+     * @return  the number of Squares on the Board
+     */
+    public int getSquareCount() {
+        return squares.length;
+    }
+    
+    /**
+     * The BitBoard is the live contents of this Board, so it is only handed
+     * to classes in this package, which keep the Squares in step with it.
+     *
+     * @return  the BitBoard that holds the contents of this Board
+     */
+    BitBoard getBitBoard() {
+        return bitBoard;
     }
     
     /**
@@ -310,4 +524,12 @@ public class Board {
         return COLS;
     }
     
+    /**
+     *
+     * @return  the number of Tokens in a row needed to win a game
+     */
+    public int getWinLength() {
+        return WIN_LENGTH;
+    }
+    
 }
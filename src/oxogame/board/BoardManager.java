@@ -1,21 +1,34 @@
 package oxogame.board;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import oxogame.game.MoveEvent;
 import oxogame.token.Token;
 
 /**
  * Class that manages a Board object.
  *
+ * Every move is pushed onto a move stack, so moves can be taken back one at
+ * a time with undoMove and played again with redoMove.  Taking back a move
+ * only has to clear one Square: the BitBoard's hash is updated as the Token
+ * is removed, and a game can only have ended on its last move, so the win
+ * state is simply cleared.  Making a new move discards the moves that could
+ * have been redone.
+ *
  * @author David Hemming
  */
 public class BoardManager {
     
     private Board board;
     private int moveCount;
-    private final List<List<Square>> linearSquares;
+    private final WinDetector winDetector;
     private BoardListener boardListener;
+    // moveStack[i] is the index of the Square played on move i, by the Token
+    // in tokenStack[i], moves from moveCount up to redoCount can be redone
+    private final int[] moveStack;
+    private final Token[] tokenStack;
+    private int redoCount;
+    // the Token that won with the last move, or null
+    private Token winner;
     
     /**
      *
@@ -23,10 +36,30 @@ public class BoardManager {
      *                      events that have occurred. 
      */
     public BoardManager(BoardListener boardListener) {
+        this(boardListener, new Board());
+    }
+    
+    /**
+     *
+     * @param boardListener an object that wants to be alerted about certain
+     *                      events that have occurred. 
+     * @param rows          the number of rows on the Board
+     * @param cols          the number of columns on the Board
+     * @param winLength     the number of Tokens in a row needed to win
+     */
+    public BoardManager(BoardListener boardListener, int rows, int cols,
+            int winLength) {
+        this(boardListener, new Board(rows, cols, winLength));
+    }
+    
+    private BoardManager(BoardListener boardListener, Board board) {
         this.boardListener = boardListener;
-        board = new Board();
-        linearSquares = getLinearSquareList();
+        this.board = board;
+        winDetector = new WinDetector(board);
+        moveStack = new int[board.getRows() * board.getCols()];
+        tokenStack = new Token[moveStack.length];
         moveCount = 0;
+        redoCount = 0;
     }
     
     /**
@@ -36,7 +69,10 @@ public class BoardManager {
      */
     public void resetBoard() {
         board.resetBoard();
+        Arrays.fill(tokenStack, 0, redoCount, null);
         moveCount = 0;
+        redoCount = 0;
+        winner = null;
     }
     
     public Board getBoard() {
@@ -54,93 +90,207 @@ public class BoardManager {
      *                      false otherwise
      */
     public boolean playerMove(MoveEvent playerMove) {
-        if (board.placeToken(playerMove.getSquare(), playerMove.getToken())) {
-           moveCount++;
-           checkBoardStatus();
+        Square square = playerMove.getSquare();
+        
+        if (!board.isSquareValid(square)) {
+            return false;
+        }
+        
+        return playerMove(board.getIndex(square.getXcoord(), square.getYcoord()),
+                playerMove.getToken());
+        
+    }
+    
+    /**
+     * Places a Token in the Square identified by an index, incrementing the
+     * moveCount, and then checking the Board status.  The same as
+     * playerMove(MoveEvent) without needing a MoveEvent.
+     *
+     * @param index the index of the Square, as returned by Board.getIndex
+     * @param t     the Token to place
+     * @return      true if the Token was successfully placed
+     *              false otherwise
+     */
+    public boolean playerMove(int index, Token t) {
+        
+        if (makeMove(index, t)) {
+           fireBoardStatusEvents(t);
            return true;
         }
         
         return false;
+    }
+    
+    /**
+     * Places a Token and pushes the move onto the move stack without alerting
+     * the listener, for code such as a search that plays moves and then takes
+     * them back.  Whether the move ended the game is available from
+     * getWinner and isGameOver.
+     *
+     * @param index the index of the Square, as returned by Board.getIndex
+     * @param t     the Token to place
+     * @return      true if the Token was successfully placed
+     *              false otherwise
+     */
+    public boolean makeMove(int index, Token t) {
+        
+        if (winner != null || !board.placeToken(index, t)) {
+            return false;
+        }
+        
+        moveStack[moveCount] = index;
+        tokenStack[moveCount] = t;
+        moveCount++;
+        if (redoCount > moveCount) {
+            Arrays.fill(tokenStack, moveCount, redoCount, null);
+        }
+        redoCount = moveCount;
+        checkBoardStatus(index, t);
         
+        return true;
     }
     
     /**
-     * Creates a List of Linear Squares, be they in the form of a row, column,
-     * or diagonal. This makes it easy to check for three squares in a row that
-     * contains the same Token, thus indicating a win by the Player that
-     * controls that Token.
-     * 
-     * @author  dave
-     * @return  a List of Lists containing Squares that form a row, col, or
-     *          diagonal
+     * Takes back the last move.  The move can be played again with redoMove
+     * until a different move is made.
+     *
+     * @return  true if a move was taken back
+     *          false if no moves have been made
      */
-    private List<List<Square>> getLinearSquareList() {
-        List<List<Square>> linearSquareList = new ArrayList<>();
+    public boolean undoMove() {
         
-        for (int i = 0; i < board.getRows(); i++) {
-            linearSquareList.add(board.getRow(i));
+        if (moveCount == 0) {
+            return false;
         }
         
-        for (int i = 0; i < board.getCols(); i++) {
-            linearSquareList.add(board.getCol(i));
+        moveCount--;
+        board.removeToken(moveStack[moveCount]);
+        winner = null;
+        
+        return true;
+    }
+    
+    /**
+     * Plays the last move that was taken back again, alerting the listener if
+     * it ends the game.
+     *
+     * @return  true if a move was played
+     *          false if there is no move to redo
+     */
+    public boolean redoMove() {
+        
+        if (moveCount == redoCount) {
+            return false;
         }
         
-        linearSquareList.add(board.getDiagonal(0));
-        linearSquareList.add(board.getDiagonal(board.getCols() - 1));
+        int index = moveStack[moveCount];
+        Token t = tokenStack[moveCount];
         
-        return linearSquareList;
+        board.placeToken(index, t);
+        moveCount++;
+        checkBoardStatus(index, t);
+        fireBoardStatusEvents(t);
+        
+        return true;
     }
     
     /**
-     * Check the Boards status.  The status can either be a Player has achieved
-     * three Tokens in a row anywhere on the Board, or the Board is full and no
-     * more Tokens can placed anywhere on the Board.
+     *
+     * @return  the number of moves that can be taken back
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+    
+    /**
+     *
+     * @param ply   the number of moves made before the move, from 0 to
+     *              getMoveCount() - 1
+     * @return      the index of the Square played on the move
+     */
+    public int getMove(int ply) {
+        
+        if (ply < 0 || ply >= moveCount) {
+            throw new IndexOutOfBoundsException("No move " + ply);
+        }
+        
+        return moveStack[ply];
+    }
+    
+    /**
+     *
+     * @return  the number of moves that can be redone
+     */
+    public int getRedoCount() {
+        return redoCount - moveCount;
+    }
+    
+    /**
+     *
+     * @return  the index of the Square played on the last move, or -1 if no
+     *          moves have been made
+     */
+    public int getLastMove() {
+        return moveCount == 0 ? -1 : moveStack[moveCount - 1];
+    }
+    
+    /**
+     *
+     * @return  the Token that won with the last move, or null if the game has
+     *          not been won
+     */
+    public Token getWinner() {
+        return winner;
+    }
+    
+    /**
+     *
+     * @return  true if the last move won the game or filled the Board
+     *          false otherwise
+     */
+    public boolean isGameOver() {
+        return winner != null || board.getBitBoard().isFull();
+    }
+    
+    /**
+     * Check the Boards status after a Token has been placed.  The status can 
+     * either be a Player has achieved k Tokens in a row anywhere on the Board,
+     * or the Board is full and no more Tokens can placed anywhere on the
+     * Board.  Only the lines passing through the Square that was just played
+     * can have been completed by the move, so only those are tested.
      * 
      * @author dave
+     * @param index the index of the Square that was just played
+     * @param t     the Token that was placed in the Square
      */
-    private void checkBoardStatus() {
-        if (moveCount >= 5) {
-            for (List<Square> linearRow : linearSquares) {
-                if (hasThreeInARow(linearRow)) {
-                    fireFirstToThreeInARowAchievedEvent(linearRow.get(0).getToken());
-                    break;
-                }
-            }
-        }
+    private void checkBoardStatus(int index, Token t) {
+        BitBoard bitBoard = board.getBitBoard();
         
-        if (moveCount == 9) {
-            fireBoardIsFullEvent();
+        // a Player cannot have k in a row until they have made k moves
+        if (moveCount >= 2 * board.getWinLength() - 1
+                && winDetector.isWin(bitBoard, index, bitBoard.getSlot(t))) {
+            winner = t;
         }
     }
     
     /**
-     * Checks to see if a List (row/col/diagonal) of Squares has three of the
-     * same Tokens.
+     * Alerts the listener if the last move ended the game.
      * 
-     * @param squares   a row of Squares to test for three of the same Token
-     * @return          true if the row of Squares has three Tokens in a row
-     *                  false otherwise
+     * @param t the Token that was placed by the last move
      */
-    private boolean hasThreeInARow(List<Square> squares) {
-        
-        Token token = null;
+    private void fireBoardStatusEvents(Token t) {
         
-        for (Square s : squares) {
-            if (token == null) {
-                token = s.getToken();
-            } else {
-                if (token != s.getToken())
-                    return false;
-            }
+        if (winner != null) {
+            fireFirstToThreeInARowAchievedEvent(t);
+        } else if (board.getBitBoard().isFull()) {
+            fireBoardIsFullEvent();
         }
-        
-        return true;
     }
     
     /**
-     * Alert the listener that a row contains three Tokens of the same type.
+     * Alert the listener that a row contains k Tokens of the same type.
      * 
-     * @param t the Token that has successfully occupied three Squares in a row
+     * @param t the Token that has successfully occupied k Squares in a row
      */
     private void fireFirstToThreeInARowAchievedEvent(Token t) {
         boardListener.threeInARowAchieved(t);
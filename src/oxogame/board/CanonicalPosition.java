@@ -0,0 +1,68 @@
+package oxogame.board;
+
+/**
+ * A class that represents the canonical form of a position: the key shared by
+ * every position that is a rotation or reflection of it, and the Symmetry
+ * that maps the original position onto the canonical one.
+ *
+ * @author David Hemming
+ */
+public final class CanonicalPosition {
+
+    private final long key;
+    private final Symmetry symmetry;
+    private final int rows;
+    private final int cols;
+
+    /**
+     *
+     * @param key       the Zobrist hash of the canonical position
+     * @param symmetry  the Symmetry that maps the original position onto the
+     *                  canonical position
+     * @param rows      the number of rows on the board
+     * @param cols      the number of columns on the board
+     */
+    public CanonicalPosition(long key, Symmetry symmetry, int rows, int cols) {
+        this.key = key;
+        this.symmetry = symmetry;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * @return the key
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * @return the symmetry
+     */
+    public Symmetry getSymmetry() {
+        return symmetry;
+    }
+
+    /**
+     * Maps a Square on the original board to the canonical board, e.g. before
+     * storing a move against the canonical key.
+     *
+     * @param index the index of a Square on the original board
+     * @return      the index of the same Square on the canonical board
+     */
+    public int toCanonical(int index) {
+        return symmetry.apply(index, rows, cols);
+    }
+
+    /**
+     * Maps a Square on the canonical board back to the original board, e.g.
+     * a move that was stored against the canonical key.
+     *
+     * @param index the index of a Square on the canonical board
+     * @return      the index of the same Square on the original board
+     */
+    public int fromCanonical(int index) {
+        return symmetry.inverse().apply(index, rows, cols);
+    }
+
+}
@@ -0,0 +1,229 @@
+package oxogame.board;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of the Tokens on a Board.  Once created a Position
+ * never changes, so it can be handed to other threads, such as analysis or
+ * spectators, without locking the live Board, and it can be used as a map
+ * key.
+ *
+ * Each Square takes two bits: 0 if it is vacant, otherwise the Token's slot
+ * (see BitBoard) plus one, so slot 0 is always the Token that moved first.
+ * Boards of up to 32 Squares, which includes the standard 3 x 3 board, are
+ * packed into a single long, larger boards into a byte array holding four
+ * Squares per byte.  The symbol of each Token is kept as well, so that a
+ * Position can be displayed.
+ *
+ * @author David Hemming
+ */
+public final class Position {
+
+    // the most Squares that fit in the packed long
+    private static final int MAX_PACKED_SQUARES = Long.SIZE / 2;
+    // two bits per Square limit a Position to three Tokens
+    private static final int MAX_SLOTS = 3;
+
+    private final int rows;
+    private final int cols;
+    private final long packed;
+    private final byte[] cells;
+    private final long hash;
+    private final int occupiedCount;
+    private final String symbols;
+
+    private Position(int rows, int cols, long packed, byte[] cells, long hash,
+            int occupiedCount, String symbols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.packed = packed;
+        this.cells = cells;
+        this.hash = hash;
+        this.occupiedCount = occupiedCount;
+        this.symbols = symbols;
+    }
+
+    /**
+     * Takes a snapshot of the Tokens on a BitBoard.  Only the occupied
+     * Squares are visited.
+     *
+     * @param bitBoard  the board to copy
+     * @return          a Position holding the board's current Tokens
+     */
+    public static Position of(BitBoard bitBoard) {
+        int squareCount = bitBoard.getSquareCount();
+        int tokenCount = bitBoard.getTokenCount();
+
+        if (tokenCount > MAX_SLOTS) {
+            throw new IllegalArgumentException("A Position can hold at most "
+                    + MAX_SLOTS + " Tokens");
+        }
+
+        long packed = 0;
+        byte[] cells = squareCount > MAX_PACKED_SQUARES ? new byte[(squareCount + 3) / 4] : null;
+        StringBuilder symbols = new StringBuilder(tokenCount);
+
+        for (int slot = 0; slot < tokenCount; slot++) {
+            symbols.append(bitBoard.getSlotToken(slot).toString().charAt(0));
+
+            for (int w = 0; w < bitBoard.getWordCount(); w++) {
+                long mask = bitBoard.getSlotWord(slot, w);
+
+                while (mask != 0) {
+                    int index = (w << 6) + Long.numberOfTrailingZeros(mask);
+                    if (cells == null)
+                        packed |= (long) (slot + 1) << (2 * index);
+                    else
+                        cells[index >>> 2] |= (slot + 1) << (2 * (index & 3));
+                    mask &= mask - 1;
+                }
+            }
+        }
+
+        return new Position(bitBoard.getRows(), bitBoard.getCols(), packed, cells,
+                bitBoard.getHash(), bitBoard.getOccupiedCount(), symbols.toString());
+    }
+
+    /**
+     * Returns the slot of the Token in the Square identified by an index.
+     *
+     * @param index the index of the Square, x * cols + y
+     * @return      the slot of the Token, 0 for the Token that moved first,
+     *              or -1 if the Square is vacant
+     */
+    public int getSlotAt(int index) {
+        int cell;
+
+        if (cells == null)
+            cell = (int) (packed >>> (2 * index)) & 3;
+        else
+            cell = (cells[index >>> 2] >>> (2 * (index & 3))) & 3;
+
+        return cell - 1;
+    }
+
+    /**
+     *
+     * @param x the x-axis of the Square
+     * @param y the y-axis of the Square
+     * @return  the slot of the Token in the Square, or -1 if it is vacant
+     */
+    public int getSlotAt(int x, int y) {
+        return getSlotAt(x * cols + y);
+    }
+
+    /**
+     *
+     * @param index the index of the Square, x * cols + y
+     * @return      true if the Square is vacant
+     *              false otherwise
+     */
+    public boolean isVacant(int index) {
+        return getSlotAt(index) < 0;
+    }
+
+    /**
+     *
+     * @param slot  the slot of a Token
+     * @return      the symbol of the Token in the slot
+     */
+    public char getSymbol(int slot) {
+        return symbols.charAt(slot);
+    }
+
+    /**
+     *
+     * @return  the number of Tokens that had been placed when the snapshot
+     *          was taken
+     */
+    public int getTokenCount() {
+        return symbols.length();
+    }
+
+    /**
+     *
+     * @return  the number of occupied Squares
+     */
+    public int getOccupiedCount() {
+        return occupiedCount;
+    }
+
+    /**
+     *
+     * @return  the Zobrist hash of the position, the same as the hash of the
+     *          board it was taken from
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     *
+     * @return  the packed Squares of a board of up to 32 Squares
+     * @throws IllegalStateException if the board is larger than 32 Squares
+     */
+    public long toLong() {
+
+        if (cells != null) {
+            throw new IllegalStateException("Board is too large to pack into a long");
+        }
+
+        return packed;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Two Positions are equal if they are the same size and every Square
+     * holds the same slot.  The symbols of the Tokens are not compared, as
+     * with the Zobrist hash.
+     *
+     */
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof Position)) {
+            return false;
+        }
+
+        Position other = (Position) o;
+
+        return rows == other.rows && cols == other.cols && hash == other.hash
+                && packed == other.packed && Arrays.equals(cells, other.cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Draws the position one row per line, with a '.' for each vacant Square.
+     *
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(rows * (cols + 1));
+
+        for (int x = 0; x < rows; x++) {
+            for (int y = 0; y < cols; y++) {
+                int slot = getSlotAt(x, y);
+                sb.append(slot < 0 ? '.' : getSymbol(slot));
+            }
+            sb.append('\n');
+        }
+
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,135 @@
+package oxogame.board;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class that reduces a position to a canonical key shared by all of its
+ * rotations and reflections.  Storing results against the canonical key lets
+ * a cache or table hold one entry for up to eight equivalent positions.
+ *
+ * The key of a position is the smallest Zobrist hash (see ZobristKeys) of
+ * any of its symmetric equivalents, so the canonical key of a position whose
+ * canonical Symmetry is IDENTITY equals Board.getHash().  Square boards use
+ * all eight symmetries, rectangular boards the four that fit them.
+ *
+ * @author David Hemming
+ */
+public class PositionCanonicaliser {
+
+    private final int rows;
+    private final int cols;
+    private final Symmetry[] symmetries;
+    // squareMaps[s][i] is the index Square i moves to under symmetries[s]
+    private final int[][] squareMaps;
+
+    /**
+     *
+     * @param rows  the number of rows on the boards to canonicalise
+     * @param cols  the number of columns on the boards to canonicalise
+     */
+    public PositionCanonicaliser(int rows, int cols) {
+        List<Symmetry> valid = new ArrayList<>();
+
+        for (Symmetry s : Symmetry.values()) {
+            if (s.isValidFor(rows, cols))
+                valid.add(s);
+        }
+
+        this.rows = rows;
+        this.cols = cols;
+        symmetries = valid.toArray(new Symmetry[valid.size()]);
+        squareMaps = new int[symmetries.length][rows * cols];
+
+        for (int s = 0; s < symmetries.length; s++) {
+            for (int i = 0; i < rows * cols; i++) {
+                squareMaps[s][i] = symmetries[s].apply(i, rows, cols);
+            }
+        }
+    }
+
+    /**
+     * Finds the canonical form of the position on a Board.
+     *
+     * @param board the Board holding the position
+     * @return      the canonical key and the Symmetry that produced it
+     */
+    public CanonicalPosition canonicalise(Board board) {
+        return canonicalise(board.getBitBoard());
+    }
+
+    /**
+     * Finds the canonical form of the position on a BitBoard.
+     *
+     * @param bitBoard  the BitBoard holding the position
+     * @return          the canonical key and the Symmetry that produced it
+     */
+    public CanonicalPosition canonicalise(BitBoard bitBoard) {
+        checkSize(bitBoard);
+
+        long bestKey = 0;
+        int best = -1;
+
+        for (int s = 0; s < symmetries.length; s++) {
+            long key = getTransformedHash(bitBoard, squareMaps[s]);
+            if (best < 0 || key < bestKey) {
+                bestKey = key;
+                best = s;
+            }
+        }
+
+        return new CanonicalPosition(bestKey, symmetries[best], rows, cols);
+    }
+
+    /**
+     * Finds the canonical key of the position on a BitBoard without recording
+     * the Symmetry used, for callers that only need the key.
+     *
+     * @param bitBoard  the BitBoard holding the position
+     * @return          the canonical key
+     */
+    public long getCanonicalKey(BitBoard bitBoard) {
+        checkSize(bitBoard);
+
+        long bestKey = getTransformedHash(bitBoard, squareMaps[0]);
+
+        for (int s = 1; s < symmetries.length; s++) {
+            bestKey = Math.min(bestKey, getTransformedHash(bitBoard, squareMaps[s]));
+        }
+
+        return bestKey;
+    }
+
+    /**
+     * Computes the Zobrist hash the position would have after its Squares
+     * were moved according to a map.
+     *
+     * @param bitBoard  the BitBoard holding the position
+     * @param squareMap the index each Square moves to
+     * @return          the hash of the transformed position
+     */
+    private long getTransformedHash(BitBoard bitBoard, int[] squareMap) {
+        long hash = 0;
+
+        for (int slot = 0; slot < bitBoard.getTokenCount(); slot++) {
+            for (int w = 0; w < bitBoard.getWordCount(); w++) {
+                long mask = bitBoard.getSlotWord(slot, w);
+                while (mask != 0) {
+                    int index = (w << 6) + Long.numberOfTrailingZeros(mask);
+                    hash ^= ZobristKeys.getKey(slot, squareMap[index]);
+                    mask &= mask - 1;
+                }
+            }
+        }
+
+        return hash;
+    }
+
+    private void checkSize(BitBoard bitBoard) {
+
+        if (bitBoard.getRows() != rows || bitBoard.getCols() != cols) {
+            throw new IllegalArgumentException("Board must be " + rows + " x " + cols);
+        }
+    }
+
+}
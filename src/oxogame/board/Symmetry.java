@@ -0,0 +1,97 @@
+package oxogame.board;
+
+/**
+ * Enumerator for the eight symmetries of a square board: the rotations and
+ * reflections that map the board onto itself.  A rectangular board only has
+ * the four that keep its rows and columns the same length.
+ *
+ * @author David Hemming
+ */
+public enum Symmetry {
+
+    IDENTITY,
+    ROTATE_90,
+    ROTATE_180,
+    ROTATE_270,
+    // top row becomes the bottom row
+    REFLECT_HORIZONTAL,
+    // left column becomes the right column
+    REFLECT_VERTICAL,
+    // reflection in the diagonal from (0, 0)
+    REFLECT_DIAGONAL,
+    // reflection in the diagonal from (0, cols - 1)
+    REFLECT_ANTI_DIAGONAL;
+
+    /**
+     * Checks to see if this symmetry maps a board of a given shape onto
+     * itself.
+     *
+     * @param rows  the number of rows on the board
+     * @param cols  the number of columns on the board
+     * @return      true if the symmetry can be applied to the board
+     *              false otherwise
+     */
+    public boolean isValidFor(int rows, int cols) {
+
+        switch (this) {
+            case IDENTITY:
+            case ROTATE_180:
+            case REFLECT_HORIZONTAL:
+            case REFLECT_VERTICAL:
+                return true;
+            default:
+                return rows == cols;
+        }
+    }
+
+    /**
+     * Returns the index a Square moves to when this symmetry is applied.
+     *
+     * @param index the index of the Square (x * cols + y)
+     * @param rows  the number of rows on the board
+     * @param cols  the number of columns on the board
+     * @return      the index of the Square after the symmetry is applied
+     */
+    public int apply(int index, int rows, int cols) {
+        int x = index / cols;
+        int y = index % cols;
+        int lastRow = rows - 1;
+        int lastCol = cols - 1;
+
+        switch (this) {
+            case ROTATE_90:
+                return y * cols + (lastRow - x);
+            case ROTATE_180:
+                return (lastRow - x) * cols + (lastCol - y);
+            case ROTATE_270:
+                return (lastCol - y) * cols + x;
+            case REFLECT_HORIZONTAL:
+                return (lastRow - x) * cols + y;
+            case REFLECT_VERTICAL:
+                return x * cols + (lastCol - y);
+            case REFLECT_DIAGONAL:
+                return y * cols + x;
+            case REFLECT_ANTI_DIAGONAL:
+                return (lastCol - y) * cols + (lastRow - x);
+            default:
+                return index;
+        }
+    }
+
+    /**
+     *
+     * @return  the symmetry that undoes this one
+     */
+    public Symmetry inverse() {
+
+        switch (this) {
+            case ROTATE_90:
+                return ROTATE_270;
+            case ROTATE_270:
+                return ROTATE_90;
+            default:
+                return this;
+        }
+    }
+
+}
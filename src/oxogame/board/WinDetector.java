@@ -0,0 +1,180 @@
+
+package oxogame.board;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class that decides whether the last Token placed on a BitBoard completed a
+ * line of k Tokens in a row (horizontally, vertically or diagonally).
+ *
+ * Only the lines passing through the Square that was just played are tested,
+ * so the cost of a check depends on k rather than on the size of the board.
+ * Boards that fit in a single 64-bit word use a precomputed mask for every
+ * k-long window through each Square, larger boards count matching Tokens
+ * outward from the Square in each of the four directions.
+ *
+ * @author David Hemming
+ */
+public class WinDetector {
+
+    // The four directions a line can run in, as {dx, dy} pairs: along a row,
+    // down a column, and along both diagonals
+    private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+    // windowMasksBySquare[i] holds the mask of every k-long window that passes
+    // through the Square with index i, or null if the board is too large
+    private final long[][] windowMasksBySquare;
+
+    /**
+     *
+     * @param rows      the number of rows on the board
+     * @param cols      the number of columns on the board
+     * @param winLength the number of Tokens in a row needed to win
+     */
+    public WinDetector(int rows, int cols, int winLength) {
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+
+        if (rows * cols <= Long.SIZE) {
+            windowMasksBySquare = getWindowMasksBySquare();
+        } else {
+            windowMasksBySquare = null;
+        }
+    }
+
+    /**
+     *
+     * @param board the Board the detector will be used with
+     */
+    public WinDetector(Board board) {
+        this(board.getRows(), board.getCols(), board.getWinLength());
+    }
+
+    /**
+     * Checks to see if the Token at a Square is part of k Tokens in a row.
+     *
+     * @param bitBoard  the board to interrogate
+     * @param index     the index of the Square that was just played
+     * @param slot      the slot of the Token that was placed in the Square
+     * @return          true if the Token has k in a row through the Square
+     *                  false otherwise
+     */
+    public boolean isWin(BitBoard bitBoard, int index, int slot) {
+
+        if (windowMasksBySquare != null) {
+            long tokenMask = bitBoard.getSlotWord(slot, 0);
+
+            for (long mask : windowMasksBySquare[index]) {
+                if ((tokenMask & mask) == mask)
+                    return true;
+            }
+
+            return false;
+        }
+
+        int x = index / cols;
+        int y = index % cols;
+
+        for (int[] d : DIRECTIONS) {
+            int count = 1 + countInDirection(bitBoard, slot, x, y, d[0], d[1])
+                    + countInDirection(bitBoard, slot, x, y, -d[0], -d[1]);
+            if (count >= winLength)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     *
+     * @return  the number of Tokens in a row needed to win
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Counts the consecutive Squares holding a Token, stepping away from a
+     * Square in one direction.  Stops after k - 1 Squares since no more are
+     * needed to decide a win.
+     *
+     * @param bitBoard  the board to interrogate
+     * @param slot      the slot of the Token to count
+     * @param x         the x-axis of the starting Square
+     * @param y         the y-axis of the starting Square
+     * @param dx        the step along the x-axis
+     * @param dy        the step along the y-axis
+     * @return          the number of matching Squares, not including the
+     *                  starting Square
+     */
+    private int countInDirection(BitBoard bitBoard, int slot, int x, int y,
+            int dx, int dy) {
+        int count = 0;
+
+        for (int i = 1; i < winLength; i++) {
+            int nx = x + dx * i;
+            int ny = y + dy * i;
+
+            if (nx < 0 || nx >= rows || ny < 0 || ny >= cols
+                    || !bitBoard.isSlotAt(nx * cols + ny, slot))
+                break;
+
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Creates a mask for every k-long window along a row, column or diagonal,
+     * and then groups them by the Squares they pass through.
+     *
+     * @return  an array, indexed by Square index, of the masks of every window
+     *          that passes through each Square
+     */
+    private long[][] getWindowMasksBySquare() {
+        List<List<Long>> windows = new ArrayList<>();
+
+        for (int i = 0; i < rows * cols; i++) {
+            windows.add(new ArrayList<Long>());
+        }
+
+        for (int[] d : DIRECTIONS) {
+            for (int x = 0; x < rows; x++) {
+                for (int y = 0; y < cols; y++) {
+                    int endX = x + d[0] * (winLength - 1);
+                    int endY = y + d[1] * (winLength - 1);
+                    if (endX < 0 || endX >= rows || endY < 0 || endY >= cols)
+                        continue;
+
+                    long mask = 0;
+                    for (int i = 0; i < winLength; i++) {
+                        mask |= 1L << ((x + d[0] * i) * cols + y + d[1] * i);
+                    }
+
+                    for (int i = 0; i < winLength; i++) {
+                        windows.get((x + d[0] * i) * cols + y + d[1] * i).add(mask);
+                    }
+                }
+            }
+        }
+
+        long[][] masksBySquare = new long[windows.size()][];
+
+        for (int index = 0; index < masksBySquare.length; index++) {
+            List<Long> through = windows.get(index);
+            masksBySquare[index] = new long[through.size()];
+            for (int i = 0; i < through.size(); i++) {
+                masksBySquare[index][i] = through.get(i);
+            }
+        }
+
+        return masksBySquare;
+    }
+
+}
@@ -0,0 +1,53 @@
+package oxogame.board;
+
+/**
+ * Provides the random keys used to Zobrist hash a position.  Every pairing of
+ * a Token slot and a Square has its own 64-bit key, and the hash of a position
+ * is the XOR of the keys of every occupied Square.  Placing or removing a
+ * Token therefore updates the hash with a single XOR.
+ *
+ * The keys are derived from the slot and Square index alone, so every Board
+ * of the same size hashes the same position to the same value, in this and
+ * any other run of the application.
+ *
+ * @author David Hemming
+ */
+public class ZobristKeys {
+
+    private static final long SEED = 0x0A0BC0DE5EEDL;
+
+    /**
+     * Returns the key for a Token slot occupying a Square.
+     *
+     * @param slot  the slot of the Token, as assigned by BitBoard
+     * @param index the index of the Square
+     * @return      the key for the slot and Square
+     */
+    public static long getKey(int slot, int index) {
+        // SplitMix64 finaliser applied to a unique value per slot and Square
+        long z = SEED + (((long) slot << 32) | index) * 0x9E3779B97F4A7C15L;
+
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Builds a table of the keys for one slot, indexed by Square.
+     *
+     * @param slot          the slot of the Token
+     * @param squareCount   the number of Squares on the Board
+     * @return              the keys for every Square
+     */
+    public static long[] getKeys(int slot, int squareCount) {
+        long[] keys = new long[squareCount];
+
+        for (int i = 0; i < squareCount; i++) {
+            keys[i] = getKey(slot, i);
+        }
+
+        return keys;
+    }
+
+}
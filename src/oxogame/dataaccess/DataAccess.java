@@ -1,64 +1,159 @@
 package oxogame.dataaccess;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
 
 import oxogame.player.HumanPlayer;
+import oxogame.player.Leaderboard;
+import oxogame.player.LeaderboardOrder;
 import oxogame.player.Player;
-import oxogame.player.PlayerManager;
 
 
 public class DataAccess {
 	
-	public static ArrayList<String> readData() throws IOException
+	public static final String DATA_FILE = "playerData.dat";
+	// the text file Players were saved in before the store, imported once
+	public static final String LEGACY_DATA_FILE = "playerData.txt";
+	// stats are written here before they reach the store
+	public static final String JOURNAL_FILE = "playerData.journal";
+	// system property overriding how long stats are held before being saved
+	public static final String FLUSH_INTERVAL_PROPERTY = "oxogame.stats.flushMillis";
+	
+	private static PlayerStore store;
+	private static GameJournal journal;
+	private static PlayerStatsWriter statsWriter;
+	private static Leaderboard leaderboard;
+	
+	/**
+	 * Opens the player store the first time it is needed, replaying any stats
+	 * left in the journal by a crash.
+	 * 
+	 * @return the player store
+	 * @throws IOException
+	 */
+	public static synchronized PlayerStore getStore() throws IOException
 	{
-		ArrayList<String> linesList = new ArrayList<String>();
-		BufferedReader reader = new BufferedReader(new FileReader("playerData.txt"));
-		String line = null;
-		while ((line = reader.readLine()) != null) {
-		    linesList.add(line);
+		if(store == null)
+		{
+			// lock the journal first so no other process is using the store
+			GameJournal openedJournal = new GameJournal(new File(JOURNAL_FILE));
+			try {
+				PlayerStore openedStore = PlayerStore.open(new File(DATA_FILE), new File(LEGACY_DATA_FILE));
+				openedJournal.replay(openedStore);
+				store = openedStore;
+				journal = openedJournal;
+			} catch (IOException e) {
+				openedJournal.close();
+				throw e;
+			}
 		}
-		reader.close();
-		return linesList;
+		return store;
 	}
 	
-	public static void searchAndWritePlayer(Player player) throws IOException
+	/**
+	 * Starts the background writer the first time it is needed. Anything
+	 * still queued is saved when the application exits.
+	 * 
+	 * @return the background writer of the player store
+	 * @throws IOException
+	 */
+	public static synchronized PlayerStatsWriter getStatsWriter() throws IOException
 	{
-		ArrayList<String> wholeFile = new ArrayList<String>();
-		BufferedWriter out = null;
-		try {
-			wholeFile = readData();
-		} catch (IOException e) {
-			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream("playerData.txt"), "UTF-8"));
+		if(statsWriter == null)
+		{
+			final PlayerStatsWriter writer = new PlayerStatsWriter(getStore(), journal,
+					Long.getLong(FLUSH_INTERVAL_PROPERTY, PlayerStatsWriter.DEFAULT_FLUSH_INTERVAL_MILLIS),
+					PlayerStatsWriter.DEFAULT_CAPACITY);
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try {
+						writer.close();
+					} catch (IOException e) {
+						System.err.println("Unable to save player stats: " + e.getMessage());
+					}
+				}
+			}));
+			statsWriter = writer;
 		}
-		ArrayList<String> currNamesList = new ArrayList<>();
-		if(out == null)
+		return statsWriter;
+	}
+	
+	/**
+	 * Maps the saved Players, so they can be listed without loading them all.
+	 * 
+	 * @return the roster of saved Players
+	 * @throws IOException
+	 */
+	public static PlayerRoster getRoster() throws IOException
+	{
+		getStore();
+		flush();
+		return PlayerRoster.map(new File(DATA_FILE));
+	}
+	
+	/**
+	 * Ranks the saved Players the first time it is needed, after which the
+	 * Leaderboard is kept up to date as stats are saved.
+	 * 
+	 * @return the Leaderboard of saved Players
+	 * @throws IOException
+	 */
+	public static synchronized Leaderboard getLeaderboard() throws IOException
+	{
+		if(leaderboard == null)
 		{
-			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream("playerData.txt"), "UTF-8"));
+			PlayerRoster roster = getRoster();
+			Leaderboard ranked = new Leaderboard(LeaderboardOrder.WIN_RATE);
+			for(int i = 0; i < roster.size(); i++)
+			{
+				ranked.update(roster.getRecord(i));
+			}
+			leaderboard = ranked;
 		}
-		for(int i=0;i<wholeFile.size();i++)
+		return leaderboard;
+	}
+	
+	/**
+	 * Queues a Player's statistics to be saved by the background writer.
+	 * 
+	 * @param player the Player to save
+	 * @throws IOException
+	 */
+	public static void writeBehind(Player player) throws IOException
+	{
+		if(player instanceof HumanPlayer)
 		{
-			if(wholeFile.get(i).split(";")[0].equalsIgnoreCase(player.getName()) && player instanceof HumanPlayer)
+			getStatsWriter().submit(player.getName(), player.getWins(), player.getLosses(), player.getDrawn(), player.getRating());
+			Leaderboard ranked;
+			synchronized(DataAccess.class)
 			{
-				String newLine = player.getName()+";"+player.getWins()+";"+player.getLosses()+";"+player.getDrawn()+";";
-				wholeFile.set(i, newLine);
+				ranked = leaderboard;
+			}
+			if(ranked != null)
+			{
+				ranked.update(new PlayerRecord(player.getName(), player.getWins(), player.getLosses(), player.getDrawn(), player.getRating()));
 			}
-			currNamesList.add(wholeFile.get(i).split(";")[0]);
 		}
-		
-		if(!currNamesList.contains(player.getName()) && player instanceof HumanPlayer)
+	}
+	
+	/**
+	 * Saves any statistics still waiting for the background writer.
+	 * 
+	 * @throws IOException
+	 */
+	public static void flush() throws IOException
+	{
+		PlayerStatsWriter writer;
+		synchronized(DataAccess.class)
 		{
-			String newLine = player.getName()+";"+player.getWins()+";"+player.getLosses()+";"+player.getDrawn()+";";
-			wholeFile.add(newLine);
+			writer = statsWriter;
 		}
-		
-		for(String line : wholeFile)
+		if(writer != null)
 		{
-			out.write(line+"\n");
+			writer.flush();
 		}
-		
-		out.close();
 	}
 	
 }
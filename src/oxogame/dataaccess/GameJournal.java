@@ -0,0 +1,295 @@
+package oxogame.dataaccess;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of Player statistics, written ahead of the
+ * PlayerStore so that statistics survive a crash part way through saving
+ * them.
+ * 
+ * Each entry holds a sequence number and the statistics of every Player in a
+ * batch, as they stood after the batch. Because entries hold the statistics
+ * rather than the changes to them, replaying an entry the store has already
+ * seen does no harm. The store records the sequence number of the last entry
+ * it holds, so that only later entries are replayed on startup. Once the
+ * store holds every entry the journal is compacted by truncating it.
+ * 
+ * Entry layout: the length of the body, a CRC32 checksum of the body, then
+ * the body itself (sequence number, record count, and for each record the
+ * length of the UTF-8 encoded name, the name, the wins, losses and drawn
+ * counts, and the Elo rating). An entry whose length or checksum does not
+ * match was torn by a crash, it and anything after it are discarded.
+ * 
+ * The journal is locked while it is open, so a second process cannot write
+ * to it at the same time.
+ * 
+ * @author David Hemming
+ */
+public class GameJournal {
+
+	private static final int ENTRY_HEADER_SIZE = 8;
+	// bodies larger than this can only come from a corrupted length field
+	private static final int MAX_BODY_SIZE = 1 << 24;
+
+	private final FileChannel channel;
+	private final FileLock lock;
+	private final List<Entry> entries;
+	private long lastSequence;
+
+	/**
+	 * Opens a journal, creating it if the file does not exist, and reads
+	 * every complete entry.
+	 * 
+	 * @param file
+	 *            the file holding the journal
+	 * @throws IOException
+	 *             if the file cannot be read, or is in use by another process
+	 */
+	public GameJournal(File file) throws IOException {
+		channel = new RandomAccessFile(file, "rw").getChannel();
+		lock = channel.tryLock();
+
+		if (lock == null) {
+			channel.close();
+			throw new IOException(file.getPath()
+					+ " is in use by another process");
+		}
+
+		entries = new ArrayList<>();
+		lastSequence = 0;
+		read();
+	}
+
+	/**
+	 * Saves the statistics from every entry the store does not already hold,
+	 * then compacts the journal.
+	 * 
+	 * @param store
+	 *            the store to bring up to date
+	 * @throws IOException
+	 *             if the store cannot be written
+	 */
+	public synchronized void replay(PlayerStore store) throws IOException {
+		long storeSequence = store.getJournalSequence();
+
+		// sequence numbers carry on from the store once the journal is empty
+		lastSequence = Math.max(lastSequence, storeSequence);
+
+		for (Entry entry : entries) {
+			if (entry.sequence <= storeSequence)
+				continue;
+
+			for (PlayerRecord record : entry.records) {
+				store.save(record);
+			}
+		}
+
+		entries.clear();
+		compact(store);
+	}
+
+	/**
+	 * Appends an entry to the end of the journal. The entry is not durable
+	 * until the next call to sync. Every name is checked before anything is
+	 * written, but callers such as PlayerStatsWriter reject names that are
+	 * too long before they reach a batch, so one cannot fail the others.
+	 * 
+	 * @param records
+	 *            the statistics of the Players in the entry
+	 * @return the sequence number of the entry
+	 * @throws IOException
+	 *             if a name is too long to save or the entry cannot be
+	 *             written
+	 */
+	public synchronized long append(List<PlayerRecord> records)
+			throws IOException {
+		long sequence = lastSequence + 1;
+		byte[][] names = new byte[records.size()][];
+		int bodySize = 8 + 4;
+
+		for (PlayerRecord record : records) {
+			if (PlayerStore.isNameTooLong(record.getName())) {
+				throw new IOException("Player name is too long to save: "
+						+ record.getName());
+			}
+		}
+
+		for (int i = 0; i < names.length; i++) {
+			names[i] = records.get(i).getName()
+					.getBytes(StandardCharsets.UTF_8);
+			bodySize += 2 + names[i].length + 12 + 8;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(ENTRY_HEADER_SIZE + bodySize);
+		buffer.position(ENTRY_HEADER_SIZE);
+		buffer.putLong(sequence);
+		buffer.putInt(records.size());
+		for (int i = 0; i < names.length; i++) {
+			PlayerRecord record = records.get(i);
+			buffer.putShort((short) names[i].length);
+			buffer.put(names[i]);
+			buffer.putInt(record.getWins());
+			buffer.putInt(record.getLosses());
+			buffer.putInt(record.getDrawn());
+			buffer.putDouble(record.getRating());
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), ENTRY_HEADER_SIZE, bodySize);
+		buffer.putInt(0, bodySize);
+		buffer.putInt(4, (int) crc.getValue());
+		buffer.position(0);
+
+		long position = channel.size();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position());
+		}
+
+		lastSequence = sequence;
+
+		return sequence;
+	}
+
+	/**
+	 * Forces every appended entry to the disk.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void sync() throws IOException {
+		channel.force(false);
+	}
+
+	/**
+	 * Records in the store that it holds every entry, then empties the
+	 * journal. The store must already hold the statistics of every entry.
+	 * 
+	 * @param store
+	 *            the store holding every entry
+	 * @throws IOException
+	 */
+	public synchronized void compact(PlayerStore store) throws IOException {
+		store.force();
+		store.setJournalSequence(lastSequence);
+		store.force();
+		channel.truncate(0);
+		channel.force(true);
+	}
+
+	/**
+	 * 
+	 * @return the size of the journal in bytes
+	 * @throws IOException
+	 */
+	public synchronized long size() throws IOException {
+		return channel.size();
+	}
+
+	/**
+	 * 
+	 * @return the sequence number of the last entry appended
+	 */
+	public synchronized long getLastSequence() {
+		return lastSequence;
+	}
+
+	/**
+	 * Releases the lock on the journal and closes it.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		lock.release();
+		channel.close();
+	}
+
+	/**
+	 * Reads every complete entry, discarding a torn entry at the end of the
+	 * journal and anything after it.
+	 * 
+	 */
+	private void read() throws IOException {
+		long size = channel.size();
+
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Journal is too large to replay");
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, buffer.position()) < 0)
+				break;
+		}
+		buffer.flip();
+
+		CRC32 crc = new CRC32();
+		int valid = 0;
+
+		while (buffer.remaining() >= ENTRY_HEADER_SIZE) {
+			int bodySize = buffer.getInt(valid);
+			int checksum = buffer.getInt(valid + 4);
+			int body = valid + ENTRY_HEADER_SIZE;
+
+			if (bodySize < 12 || bodySize > MAX_BODY_SIZE
+					|| bodySize > buffer.limit() - body)
+				break;
+
+			crc.reset();
+			crc.update(buffer.array(), body, bodySize);
+			if ((int) crc.getValue() != checksum)
+				break;
+
+			buffer.position(body);
+			Entry entry = readEntry(buffer);
+			entries.add(entry);
+			lastSequence = Math.max(lastSequence, entry.sequence);
+			valid = body + bodySize;
+			buffer.position(valid);
+		}
+
+		if (valid < size) {
+			channel.truncate(valid);
+		}
+	}
+
+	private static Entry readEntry(ByteBuffer buffer) {
+		long sequence = buffer.getLong();
+		int count = buffer.getInt();
+		List<PlayerRecord> records = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			int nameLength = buffer.getShort();
+			String name = new String(buffer.array(), buffer.position(),
+					nameLength, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + nameLength);
+			records.add(new PlayerRecord(name, buffer.getInt(),
+					buffer.getInt(), buffer.getInt(), buffer.getDouble()));
+		}
+
+		return new Entry(sequence, records);
+	}
+
+	/**
+	 * An entry read from the journal.
+	 * 
+	 */
+	private static class Entry {
+
+		private final long sequence;
+		private final List<PlayerRecord> records;
+
+		private Entry(long sequence, List<PlayerRecord> records) {
+			this.sequence = sequence;
+			this.records = records;
+		}
+	}
+
+}
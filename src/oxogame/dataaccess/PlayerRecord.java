@@ -0,0 +1,87 @@
+package oxogame.dataaccess;
+
+import oxogame.player.EloRating;
+
+/**
+ * A class that represents the saved statistics of a Player.
+ * 
+ * @author David Hemming
+ */
+public class PlayerRecord {
+
+	private final String name;
+	private final int wins;
+	private final int losses;
+	private final int drawn;
+	private final double rating;
+
+	/**
+	 * Creates a record of a Player with the initial rating.
+	 * 
+	 * @param name
+	 *            the name of the Player
+	 * @param wins
+	 *            the number of games the Player has won
+	 * @param losses
+	 *            the number of games the Player has lost
+	 * @param drawn
+	 *            the number of games the Player has drawn
+	 */
+	public PlayerRecord(String name, int wins, int losses, int drawn) {
+		this(name, wins, losses, drawn, EloRating.INITIAL_RATING);
+	}
+
+	/**
+	 * 
+	 * @param name
+	 *            the name of the Player
+	 * @param wins
+	 *            the number of games the Player has won
+	 * @param losses
+	 *            the number of games the Player has lost
+	 * @param drawn
+	 *            the number of games the Player has drawn
+	 * @param rating
+	 *            the Elo rating of the Player
+	 */
+	public PlayerRecord(String name, int wins, int losses, int drawn,
+			double rating) {
+		this.name = name;
+		this.wins = wins;
+		this.losses = losses;
+		this.drawn = drawn;
+		this.rating = rating;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getWins() {
+		return wins;
+	}
+
+	public int getLosses() {
+		return losses;
+	}
+
+	public int getDrawn() {
+		return drawn;
+	}
+
+	public double getRating() {
+		return rating;
+	}
+
+	/**
+	 * Constructs a String containing the Players name and statistics.
+	 * 
+	 * @return a String with Player name and statistics.
+	 */
+	@Override
+	public String toString() {
+		return name + "..." + wins + " Wins, " + losses + " Losses, " + drawn
+				+ " Drawn, Rated " + Math.round(rating);
+	}
+
+}
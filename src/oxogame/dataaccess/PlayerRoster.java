@@ -0,0 +1,127 @@
+package oxogame.dataaccess;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A read-only view of the Players saved in a PlayerStore file, memory-mapped
+ * so that opening it costs nothing however many Players have been saved.
+ * 
+ * Records are a fixed size, so the offset of record i is simply HEADER_SIZE +
+ * i * RECORD_SIZE and no offset table needs to be read or held. A record is
+ * only decoded when it is asked for, which lets a menu page through millions
+ * of Players while holding just the page on the heap.
+ * 
+ * The roster holds the Players that were saved when it was mapped. Changes
+ * to their statistics are seen straight away, Players saved afterwards are
+ * not, map the file again to see them.
+ * 
+ * @author David Hemming
+ */
+public class PlayerRoster {
+
+	private final MappedByteBuffer records;
+	private final int size;
+	private final byte[] nameBuffer;
+
+	private PlayerRoster(MappedByteBuffer records, int size) {
+		this.records = records;
+		this.size = size;
+		nameBuffer = new byte[PlayerStore.MAX_NAME_BYTES];
+	}
+
+	/**
+	 * Maps the Players saved in a PlayerStore file.
+	 * 
+	 * @param file
+	 *            the file holding the store
+	 * @return the mapped roster, empty if the file does not exist
+	 * @throws IOException
+	 *             if the file cannot be mapped or is not a store
+	 */
+	public static PlayerRoster map(File file) throws IOException {
+
+		if (!file.isFile() || file.length() < PlayerStore.HEADER_SIZE) {
+			return new PlayerRoster(null, 0);
+		}
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel channel = raf.getChannel()) {
+			MappedByteBuffer header = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, PlayerStore.HEADER_SIZE);
+
+			if (header.getInt(0) != PlayerStore.MAGIC
+					|| header.getInt(4) != PlayerStore.VERSION) {
+				throw new IOException(
+						"Not a player store, or an unknown version");
+			}
+
+			int size = header.getInt(PlayerStore.COUNT_OFFSET);
+			long length = PlayerStore.HEADER_SIZE + (long) size
+					* PlayerStore.RECORD_SIZE;
+
+			if (length > channel.size()) {
+				throw new IOException("Player store is truncated");
+			}
+
+			// the mapping stays valid after the channel is closed
+			return new PlayerRoster(channel.map(FileChannel.MapMode.READ_ONLY,
+					0, length), size);
+		}
+	}
+
+	/**
+	 * 
+	 * @return the number of Players in the roster
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 
+	 * @param i
+	 *            the position of the Player in the roster
+	 * @return the name of the Player
+	 */
+	public synchronized String getName(int i) {
+		int offset = getOffset(i);
+		int nameLength = records.getShort(offset);
+
+		// absolute gets, so the buffer position is never shared
+		for (int b = 0; b < nameLength; b++) {
+			nameBuffer[b] = records.get(offset + 2 + b);
+		}
+
+		return new String(nameBuffer, 0, nameLength, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 
+	 * @param i
+	 *            the position of the Player in the roster
+	 * @return the saved statistics of the Player
+	 */
+	public PlayerRecord getRecord(int i) {
+		int stats = getOffset(i) + PlayerStore.STATS_OFFSET;
+
+		return new PlayerRecord(getName(i), records.getInt(stats),
+				records.getInt(stats + 4), records.getInt(stats + 8),
+				records.getDouble(getOffset(i) + PlayerStore.RATING_OFFSET));
+	}
+
+	private int getOffset(int i) {
+
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Player " + i
+					+ " is not in the roster");
+		}
+
+		return PlayerStore.HEADER_SIZE + i * PlayerStore.RECORD_SIZE;
+	}
+
+}
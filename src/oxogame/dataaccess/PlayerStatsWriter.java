@@ -0,0 +1,277 @@
+package oxogame.dataaccess;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class that saves Player statistics to a PlayerStore on a background
+ * thread, so that the end of a game never waits for the disk.
+ * 
+ * Updates are placed on a bounded queue. The background thread waits for the
+ * flush interval after the first update arrives, or until the queue fills,
+ * then saves everything queued in one batch. A Player updated several times
+ * within a batch is only saved once, with their latest statistics. If the
+ * queue is full the caller waits for the background thread to catch up.
+ * 
+ * If the writer is given a GameJournal each batch is appended to the journal
+ * and forced to the disk before the store is updated, and the journal is
+ * compacted whenever it grows past COMPACT_THRESHOLD bytes.
+ * 
+ * Each Player in a batch is saved separately, so one that cannot be saved
+ * does not stop the others. Updates that were not saved are kept and saved
+ * with the next batch, unless a newer update of the same Player replaces
+ * them. While any are kept the background thread retries them every flush
+ * interval, even if no new update arrives. A failure on the background
+ * thread is reported to the next caller of submit.
+ * 
+ * @author David Hemming
+ */
+public class PlayerStatsWriter {
+
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 500;
+	public static final int DEFAULT_CAPACITY = 1024;
+	public static final long COMPACT_THRESHOLD = 1 << 20;
+
+	private final PlayerStore store;
+	private final GameJournal journal;
+	private final long flushIntervalMillis;
+	private final BlockingQueue<PlayerRecord> queue;
+	private final Thread thread;
+	private final int capacity;
+	// one permit per submitted update, wakes the background thread
+	private final Semaphore submitted;
+	// updates a failed flush did not save, guarded by this
+	private final List<PlayerRecord> unsaved;
+	// the last failure of the background thread, not yet reported
+	private volatile IOException failure;
+	private volatile boolean running;
+
+	/**
+	 * 
+	 * @param store
+	 *            the store the statistics are saved to
+	 */
+	public PlayerStatsWriter(PlayerStore store) {
+		this(store, null, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * 
+	 * @param store
+	 *            the store the statistics are saved to
+	 * @param journal
+	 *            the journal written ahead of the store, or null
+	 * @param flushIntervalMillis
+	 *            how long updates are held before they are saved
+	 * @param capacity
+	 *            the number of updates that can be queued before callers
+	 *            have to wait
+	 */
+	public PlayerStatsWriter(PlayerStore store, GameJournal journal,
+			long flushIntervalMillis, int capacity) {
+		this.store = store;
+		this.journal = journal;
+		this.flushIntervalMillis = flushIntervalMillis;
+		queue = new ArrayBlockingQueue<>(capacity);
+		this.capacity = capacity;
+		submitted = new Semaphore(0);
+		unsaved = new ArrayList<>();
+		running = true;
+
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeBehind();
+			}
+		}, "player-stats-writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Queues a Player's statistics to be saved.
+	 * 
+	 * @param name
+	 *            the name of the Player
+	 * @param wins
+	 *            the number of games the Player has won
+	 * @param losses
+	 *            the number of games the Player has lost
+	 * @param drawn
+	 *            the number of games the Player has drawn
+	 * @param rating
+	 *            the Elo rating of the Player
+	 * @throws IOException
+	 *             if the background thread has failed to save earlier
+	 *             updates since the last call, the update is still queued
+	 * @throws IllegalArgumentException
+	 *             if the name is too long to save, the update is not queued
+	 *             so that it cannot fail the batch it would be saved in
+	 */
+	public void submit(String name, int wins, int losses, int drawn,
+			double rating) throws IOException {
+		PlayerRecord record = new PlayerRecord(name, wins, losses, drawn,
+				rating);
+
+		if (!running) {
+			throw new IllegalStateException("Player stats writer is closed");
+		}
+
+		if (PlayerStore.isNameTooLong(name)) {
+			throw new IllegalArgumentException(
+					"Player name is too long to save: " + name);
+		}
+
+		boolean interrupted = false;
+
+		while (true) {
+			try {
+				queue.put(record);
+				submitted.release();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		IOException failed = failure;
+
+		if (failed != null) {
+			failure = null;
+			throw failed;
+		}
+	}
+
+	/**
+	 * Saves every queued update now, on the calling thread, along with any
+	 * updates an earlier flush failed to save.
+	 * 
+	 * @throws IOException
+	 *             if the updates cannot be saved, those not saved are kept
+	 *             for the next flush
+	 */
+	public synchronized void flush() throws IOException {
+		List<PlayerRecord> batch = new ArrayList<>(unsaved);
+		Map<String, PlayerRecord> latest = new LinkedHashMap<>();
+
+		unsaved.clear();
+		queue.drainTo(batch);
+
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		// keep only the latest update of each Player
+		for (PlayerRecord record : batch) {
+			latest.put(record.getName().toLowerCase(Locale.ROOT), record);
+		}
+
+		List<PlayerRecord> records = new ArrayList<>(latest.values());
+		IOException firstFailure = null;
+
+		if (journal != null) {
+			try {
+				journal.append(records);
+				journal.sync();
+			} catch (IOException e) {
+				unsaved.addAll(records);
+				throw e;
+			}
+		}
+
+		for (PlayerRecord record : records) {
+			try {
+				store.save(record);
+			} catch (IOException e) {
+				// journalling a record again next time does no harm
+				unsaved.add(record);
+				if (firstFailure == null)
+					firstFailure = e;
+			}
+		}
+
+		if (firstFailure != null) {
+			throw firstFailure;
+		}
+
+		failure = null;
+
+		if (journal != null && journal.size() > COMPACT_THRESHOLD) {
+			journal.compact(store);
+		}
+	}
+
+	/**
+	 * Stops the background thread and saves every queued update.
+	 * 
+	 * @throws IOException
+	 *             if the updates cannot be saved
+	 */
+	public void close() throws IOException {
+		running = false;
+		// wake the background thread as if the queue had filled
+		submitted.release(capacity);
+
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		flush();
+	}
+
+	/**
+	 * 
+	 * @return true if an earlier flush failed to save some updates
+	 */
+	private synchronized boolean hasUnsaved() {
+		return !unsaved.isEmpty();
+	}
+
+	/**
+	 * The body of the background thread: waits for an update, lets more
+	 * arrive for the flush interval or until the queue is full, then saves
+	 * them all. If no update arrives within the flush interval but an
+	 * earlier flush failed to save some, it retries them.
+	 * 
+	 */
+	private void writeBehind() {
+
+		while (running) {
+			try {
+				if (submitted.tryAcquire(flushIntervalMillis,
+						TimeUnit.MILLISECONDS)) {
+					// wait out the interval, unless the queue fills first
+					submitted.tryAcquire(capacity - 1, flushIntervalMillis,
+							TimeUnit.MILLISECONDS);
+					submitted.drainPermits();
+				} else if (!hasUnsaved()) {
+					continue;
+				}
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			try {
+				flush();
+			} catch (IOException e) {
+				// the updates are kept for the next flush
+				failure = e;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,364 @@
+package oxogame.dataaccess;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * A class that saves Player statistics in a binary file of fixed size
+ * records, so that a single Player's statistics can be read or updated in
+ * place without reading or rewriting the rest of the file.
+ * 
+ * An index from Player name (ignoring case) to record number is built when
+ * the store is opened, after which finding a Player costs no I/O and saving a
+ * Player costs a single write.
+ * 
+ * File layout: a HEADER_SIZE byte header (magic number, version, record
+ * count, and the sequence number of the last GameJournal entry the store
+ * holds) followed by RECORD_SIZE byte records. Each record holds the length
+ * of the UTF-8 encoded name, the name padded to MAX_NAME_BYTES, the wins,
+ * losses and drawn counts, and the Elo rating.
+ * 
+ * @author David Hemming
+ */
+public class PlayerStore {
+
+	public static final int MAX_NAME_BYTES = 64;
+
+	// the file layout is shared with PlayerRoster
+	static final int MAGIC = 0x4F584F50; // "OXOP"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final int COUNT_OFFSET = 8;
+	static final int SEQUENCE_OFFSET = 16;
+	static final int RECORD_SIZE = 88;
+	static final int STATS_OFFSET = 2 + MAX_NAME_BYTES;
+	static final int RATING_OFFSET = 80;
+
+	private final FileChannel channel;
+	// record number of each Player, keyed by lower case name
+	private final Map<String, Integer> index;
+	private final ByteBuffer recordBuffer;
+	private final ByteBuffer headerBuffer;
+	private int recordCount;
+	private long journalSequence;
+
+	/**
+	 * Opens a store, creating it if the file does not exist.
+	 * 
+	 * @param file
+	 *            the file holding the store
+	 * @throws IOException
+	 *             if the file cannot be opened or is not a store
+	 */
+	public PlayerStore(File file) throws IOException {
+		channel = new RandomAccessFile(file, "rw").getChannel();
+		index = new HashMap<>();
+		recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+		headerBuffer = ByteBuffer.allocate(HEADER_SIZE);
+
+		if (channel.size() == 0) {
+			recordCount = 0;
+			journalSequence = 0;
+			writeHeader();
+		} else {
+			readHeader();
+			buildIndex();
+		}
+	}
+
+	/**
+	 * Opens a store, creating it if necessary and importing the Players in a
+	 * playerData.txt style file if the store is new.
+	 * 
+	 * @param file
+	 *            the file holding the store
+	 * @param legacyFile
+	 *            a text file of name;wins;losses;drawn; lines
+	 * @return the opened store
+	 * @throws IOException
+	 *             if either file cannot be read or the store written
+	 */
+	public static PlayerStore open(File file, File legacyFile)
+			throws IOException {
+		boolean isNew = !file.exists() || file.length() == 0;
+		PlayerStore store = new PlayerStore(file);
+
+		if (isNew && legacyFile.isFile()) {
+			store.importLegacyFile(legacyFile);
+		}
+
+		return store;
+	}
+
+	/**
+	 * Finds the saved statistics of a Player.
+	 * 
+	 * @param name
+	 *            the name of the Player, case is ignored
+	 * @return the Player's record, or null if the Player has not been saved
+	 * @throws IOException
+	 *             if the record cannot be read
+	 */
+	public synchronized PlayerRecord find(String name) throws IOException {
+		Integer record = index.get(getKey(name));
+
+		return record == null ? null : readRecord(record);
+	}
+
+	/**
+	 * Saves a Player's statistics, overwriting their existing record or
+	 * appending a new one.
+	 * 
+	 * @param playerRecord
+	 *            the statistics of the Player
+	 * @throws IOException
+	 *             if the name is too long to save or the record cannot be
+	 *             written
+	 */
+	public synchronized void save(PlayerRecord playerRecord)
+			throws IOException {
+		String name = playerRecord.getName();
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+
+		if (nameBytes.length > MAX_NAME_BYTES) {
+			throw new IOException("Player name is too long to save: " + name);
+		}
+
+		String key = getKey(name);
+		Integer record = index.get(key);
+		boolean isNew = record == null;
+
+		if (isNew) {
+			record = recordCount;
+		}
+
+		recordBuffer.clear();
+		recordBuffer.putShort((short) nameBytes.length);
+		recordBuffer.put(nameBytes);
+		recordBuffer.position(STATS_OFFSET);
+		recordBuffer.putInt(playerRecord.getWins());
+		recordBuffer.putInt(playerRecord.getLosses());
+		recordBuffer.putInt(playerRecord.getDrawn());
+		recordBuffer.putDouble(RATING_OFFSET, playerRecord.getRating());
+		recordBuffer.position(0);
+		recordBuffer.limit(RECORD_SIZE);
+		writeFully(recordBuffer, getRecordOffset(record));
+
+		if (isNew) {
+			index.put(key, record);
+			recordCount++;
+			writeHeader();
+		}
+	}
+
+	/**
+	 * Reads every saved record, in the order the Players were first saved.
+	 * 
+	 * @return a List of every record
+	 * @throws IOException
+	 *             if the records cannot be read
+	 */
+	public synchronized List<PlayerRecord> getRecords() throws IOException {
+		List<PlayerRecord> records = new ArrayList<>(recordCount);
+
+		for (int i = 0; i < recordCount; i++) {
+			records.add(readRecord(i));
+		}
+
+		return records;
+	}
+
+	/**
+	 * 
+	 * @return the number of Players saved in the store
+	 */
+	public synchronized int size() {
+		return recordCount;
+	}
+
+	/**
+	 * 
+	 * @return the sequence number of the last GameJournal entry the store
+	 *         holds
+	 */
+	public synchronized long getJournalSequence() {
+		return journalSequence;
+	}
+
+	/**
+	 * Records the sequence number of the last GameJournal entry the store
+	 * holds.
+	 * 
+	 * @param journalSequence
+	 *            the sequence number of the entry
+	 * @throws IOException
+	 *             if the header cannot be written
+	 */
+	public synchronized void setJournalSequence(long journalSequence)
+			throws IOException {
+		this.journalSequence = journalSequence;
+		writeHeader();
+	}
+
+	/**
+	 * Forces every saved record to the disk.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void force() throws IOException {
+		channel.force(false);
+	}
+
+	/**
+	 * Closes the file holding the store.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		channel.close();
+	}
+
+	private PlayerRecord readRecord(int record) throws IOException {
+		recordBuffer.clear();
+		readFully(recordBuffer, getRecordOffset(record));
+		recordBuffer.flip();
+
+		int nameLength = recordBuffer.getShort();
+		String name = new String(recordBuffer.array(), 2, nameLength,
+				StandardCharsets.UTF_8);
+		recordBuffer.position(STATS_OFFSET);
+
+		return new PlayerRecord(name, recordBuffer.getInt(),
+				recordBuffer.getInt(), recordBuffer.getInt(),
+				recordBuffer.getDouble(RATING_OFFSET));
+	}
+
+	/**
+	 * Reads the name of every record to build the name index.
+	 * 
+	 */
+	private void buildIndex() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024);
+		int record = 0;
+
+		while (record < recordCount) {
+			int records = Math.min(1024, recordCount - record);
+
+			buffer.clear();
+			buffer.limit(records * RECORD_SIZE);
+			readFully(buffer, getRecordOffset(record));
+
+			for (int i = 0; i < records; i++) {
+				int start = i * RECORD_SIZE;
+				int nameLength = buffer.getShort(start);
+				String name = new String(buffer.array(), start + 2,
+						nameLength, StandardCharsets.UTF_8);
+				index.put(getKey(name), record + i);
+			}
+
+			record += records;
+		}
+	}
+
+	/**
+	 * Checks to see if a name is too long to fit in a record.
+	 * 
+	 * @param name
+	 *            the name to check
+	 * @return true if the UTF-8 encoding of the name is longer than
+	 *         MAX_NAME_BYTES false otherwise
+	 */
+	public static boolean isNameTooLong(String name) {
+		return name.getBytes(StandardCharsets.UTF_8).length > MAX_NAME_BYTES;
+	}
+
+	/**
+	 * Saves every Player in a playerData.txt style file. Lines whose name is
+	 * too long to save are skipped, as no Player can have such a name.
+	 * 
+	 */
+	private void importLegacyFile(File legacyFile) throws IOException {
+
+		try (BufferedReader reader = new BufferedReader(new FileReader(
+				legacyFile))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(";");
+				if (fields.length < 4 || fields[0].trim().isEmpty()
+						|| isNameTooLong(fields[0]))
+					continue;
+
+				try {
+					save(new PlayerRecord(fields[0],
+							Integer.parseInt(fields[1]),
+							Integer.parseInt(fields[2]),
+							Integer.parseInt(fields[3])));
+				} catch (NumberFormatException e) {
+					// skip lines that are not player statistics
+				}
+			}
+		}
+	}
+
+	private void readHeader() throws IOException {
+		headerBuffer.clear();
+		readFully(headerBuffer, 0);
+
+		if (headerBuffer.getInt(0) != MAGIC
+				|| headerBuffer.getInt(4) != VERSION) {
+			throw new IOException("Not a player store, or an unknown version");
+		}
+
+		recordCount = headerBuffer.getInt(COUNT_OFFSET);
+		journalSequence = headerBuffer.getLong(SEQUENCE_OFFSET);
+	}
+
+	private void writeHeader() throws IOException {
+		headerBuffer.clear();
+		headerBuffer.putInt(MAGIC);
+		headerBuffer.putInt(VERSION);
+		headerBuffer.putInt(recordCount);
+		headerBuffer.putLong(SEQUENCE_OFFSET, journalSequence);
+		headerBuffer.position(0);
+		headerBuffer.limit(HEADER_SIZE);
+		writeFully(headerBuffer, 0);
+	}
+
+	private void readFully(ByteBuffer buffer, long position)
+			throws IOException {
+
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new IOException("Player store is truncated");
+		}
+	}
+
+	private void writeFully(ByteBuffer buffer, long position)
+			throws IOException {
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position());
+		}
+	}
+
+	private static long getRecordOffset(int record) {
+		return HEADER_SIZE + (long) record * RECORD_SIZE;
+	}
+
+	private static String getKey(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+}
@@ -2,11 +2,17 @@ package oxogame.game;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Executor;
 
+import oxogame.ai.Difficulty;
+import oxogame.ai.MoveStrategy;
+import oxogame.ai.StrategyFactory;
 import oxogame.board.Board;
 import oxogame.board.BoardManager;
 import oxogame.board.BoardListener;
+import oxogame.board.Position;
 import oxogame.dataaccess.DataAccess;
+import oxogame.dataaccess.PlayerRoster;
 import oxogame.player.HumanPlayer;
 import oxogame.player.Player;
 import oxogame.player.PlayerManager;
@@ -15,10 +21,20 @@ import oxogame.token.Token;
 import oxogame.token.TokenManager;
 import oxogame.userinterface.OXOGameUIListener;
 import oxogame.userinterface.TextInterface;
+import util.QuitException;
 
 /**
  * A controller class that coordinates a Game of Tic Tac Toe.
  * 
+ * Play is driven by a single loop in run() that performs one step of the
+ * current GameState per pass.  The BoardManager's events only change the
+ * state, so however many games are played the stack never grows.
+ * 
+ * Moves are requested through a MoveCallback.  If a Player's move is not
+ * ready when it is requested the loop returns and the Game parks in the
+ * AWAITING_MOVE state, holding no thread, until the move arrives and the loop
+ * is resumed on the Game's Executor.
+ * 
  * @author David Hemming
  */
 public class Game implements OXOGameUIListener, BoardListener {
@@ -29,6 +45,41 @@ public class Game implements OXOGameUIListener, BoardListener {
 	private TokenManager tokenManager;
 	private PlayerManager playerManager;
 	private TextInterface view;
+	// read by takeBack and quit, which may run on other threads
+	private volatile GameState state;
+	private Player winningPlayer;
+	private final TurnTimer turnTimer;
+	private boolean hasQuit;
+	// a snapshot of the Board taken after every change, for other threads
+	private volatile Position position;
+	private Executor executor;
+	// the Player whose move has been requested, and the move or failure
+	// handed back by their callback
+	private Player currentPlayer;
+	private long turnStart;
+	private MoveEvent pendingMove;
+	private Exception pendingFailure;
+	// true while the loop has returned to wait for a move, guarded by this
+	private boolean parked;
+	private final MoveCallback moveCallback = new MoveCallback() {
+
+		@Override
+		public void moveChosen(MoveEvent move) {
+			deliver(move, null);
+		}
+
+		@Override
+		public void moveFailed(Exception e) {
+			deliver(null, e);
+		}
+	};
+	private final Runnable resumeTask = new Runnable() {
+
+		@Override
+		public void run() {
+			loop();
+		}
+	};
 
 	/**
 	 * 
@@ -37,92 +88,288 @@ public class Game implements OXOGameUIListener, BoardListener {
 	 *            through
 	 */
 	public Game(TextInterface view) {
+		this(view, 3, 3, 3);
+	}
+
+	/**
+	 * 
+	 * @param view
+	 *            the view layer in which this controller class communicates
+	 *            through
+	 * @param rows
+	 *            the number of rows on the Board
+	 * @param cols
+	 *            the number of columns on the Board
+	 * @param winLength
+	 *            the number of Tokens in a row needed to win a game
+	 */
+	public Game(TextInterface view, int rows, int cols, int winLength) {
 		this.view = view;
 		view.setOXOGameUIListener(this);
-		boardManager = new BoardManager(this);
+		boardManager = new BoardManager(this, rows, cols, winLength);
 		tokenManager = new TokenManager();
 		playerManager = new PlayerManager();
 		tokenManager.addToken(new Token('X'));
 		tokenManager.addToken(new Token('O'));
+		turnTimer = new TurnTimer();
+		state = GameState.AWAITING_NEW_GAME;
+		position = boardManager.getBoard().snapshot();
 	}
 
 	/**
 	 * Initiates a game of Tic Tac Toe by checking that it has enough Players.
-	 * If it does not have enough Players it sends a request to the view layer,
-	 * otherwise it starts the game.
+	 * While it does not have enough Players it sends requests to the view
+	 * layer, and then it starts the game. Returns once the user quits.
 	 * 
 	 * @author dave
 	 */
 	public void init() {
 
-		ArrayList<String> playerData = new ArrayList<String>();
+		try {
+			while (playerManager.size() < PLAYERS_REQUIRED) {
+				int players = playerManager.size();
 
-		if (playerManager.size() < PLAYERS_REQUIRED) {
+				requestPlayer();
 
-			try {
-				playerData = DataAccess.readData();
-
-				if (playerData == null || playerData.isEmpty()
-						|| playerData.get(0).isEmpty()
-						|| playerData.get(0).charAt(0) == ' '
-						|| !Character.isLetter(playerData.get(0).charAt(0))) {
-					view.requestPlayer(tokenManager.getAvailableTokenList());
-				} else {
-					view.requestPlayer(playerData,
-							tokenManager.getAvailableTokenList());
-				}
-			} catch (Exception e) {
-				try {
-					view.requestPlayer(tokenManager.getAvailableTokenList());
-				} catch (Exception e1) {
-					view.renderErrorMessage(e1.getMessage());
+				// stop rather than ask forever if no Player could be created
+				if (playerManager.size() == players) {
+					quit();
+					return;
 				}
 			}
+		} catch (QuitException e) {
+			// the view has already called quit()
+			return;
 		}
 
-		if (playerManager.size() == PLAYERS_REQUIRED) {
-			if (view.promptUserForNewGame()) {
-				run();
+		run();
+	}
+
+	/**
+	 * Asks the view layer for a new Player, offering the saved Players if
+	 * there are any.
+	 * 
+	 * @author dave
+	 */
+	private void requestPlayer() {
+
+		try {
+			PlayerRoster roster = DataAccess.getRoster();
+
+			if (roster.size() == 0) {
+				view.requestPlayer(tokenManager.getAvailableTokenList());
 			} else {
-				quit();
+				view.requestPlayer(roster,
+						tokenManager.getAvailableTokenList());
+			}
+		} catch (QuitException e) {
+			throw e;
+		} catch (Exception e) {
+			try {
+				view.requestPlayer(tokenManager.getAvailableTokenList());
+			} catch (QuitException e1) {
+				throw e1;
+			} catch (Exception e1) {
+				view.renderErrorMessage(e1.getMessage());
 			}
 		}
 	}
 
 	/**
-	 * The main process which runs each game.
+	 * The main process which runs each game. Loops until the user quits,
+	 * performing one step of the current state on each pass. Returns early if
+	 * the Game parks to wait for a Player's move.
 	 * 
 	 * @author dave
 	 */
 	public void run() {
 
-		while (true) {
+		state = GameState.AWAITING_NEW_GAME;
+		loop();
+	}
+
+	/**
+	 * Performs steps until the user quits or the Game parks.
+	 * 
+	 */
+	private void loop() {
+
+		while (state != GameState.QUIT) {
 
 			try {
-				Board board = boardManager.getBoard();
-				Player player = playerManager.getNextPlayer();
-				MoveEvent playerMove;
-
-				// Renders information about the current state of the Board to
-				// to the View layer if the Player whos turn it is is a Human
-				// (user)
-				if (player instanceof HumanPlayer) {
-					view.renderHeader("YOUR MOVE "
-							+ player.getName().toUpperCase() + " ("
-							+ player.getToken().toString() + ")");
-					view.renderBoard(boardManager.getBoard());
+				if (!step()) {
+					// parked, deliver() resumes the loop once the move arrives
+					return;
 				}
+			} catch (QuitException e) {
+				// the view has already called quit()
+				state = GameState.QUIT;
+			}
+		}
+
+		quit();
+	}
+
+	/**
+	 * Performs one step of the current state.
+	 * 
+	 * @return true if the step was performed, false if the Game has parked
+	 */
+	private boolean step() {
 
-				// Gets the Players move, loops until the move is valid
-				do {
-					playerMove = player.getPlayerMove(board);
-				} while (!board.canPlaceToken(playerMove.getSquare()));
+		switch (state) {
+		case AWAITING_NEW_GAME:
+			// Ask the user if they want to play another game
+			if (view.promptUserForNewGame()) {
+				state = GameState.IN_PROGRESS;
+			} else {
+				state = GameState.QUIT;
+			}
+			break;
+		case IN_PROGRESS:
+			startTurn();
+			break;
+		case AWAITING_MOVE:
+			return playPendingMove();
+		case WON:
+			gameWon(winningPlayer);
+			state = GameState.AWAITING_NEW_GAME;
+			break;
+		case DRAWN:
+			gameDrawn();
+			state = GameState.AWAITING_NEW_GAME;
+			break;
+		default:
+			break;
+		}
 
-				boardManager.playerMove(playerMove);
+		return true;
+	}
+
+	/**
+	 * Starts a single turn: asks the next Player for their move. The move is
+	 * placed on the Board by playPendingMove once it arrives.
+	 * 
+	 * @author dave
+	 */
+	private void startTurn() {
+
+		turnStart = System.nanoTime();
+
+		try {
+			currentPlayer = playerManager.getNextPlayer();
+		} catch (Exception ex) {
+			abandonGame(ex);
+			return;
+		}
+
+		// Renders information about the current state of the Board to
+		// to the View layer if the Player whos turn it is is a Human
+		// (user)
+		if (currentPlayer instanceof HumanPlayer) {
+			view.renderHeader("YOUR MOVE "
+					+ currentPlayer.getName().toUpperCase() + " ("
+					+ currentPlayer.getToken().toString() + ")");
+			view.renderBoard(boardManager.getBoard());
+		}
 
-			} catch (Exception ex) {
+		state = GameState.AWAITING_MOVE;
+		currentPlayer.requestPlayerMove(boardManager.getBoard(), moveCallback);
+	}
+
+	/**
+	 * Places the move handed back by the current Player on the Board. If the
+	 * move ends the game the BoardManager's events change the state.
+	 * 
+	 * @return true if a move or failure was waiting, false if there was
+	 *         nothing to play and the Game has parked
+	 */
+	private boolean playPendingMove() {
+		MoveEvent playerMove;
+		Exception failure;
+
+		synchronized (this) {
+			if (pendingMove == null && pendingFailure == null) {
+				parked = true;
+				return false;
+			}
+
+			playerMove = pendingMove;
+			failure = pendingFailure;
+			pendingMove = null;
+			pendingFailure = null;
+			// no longer waiting, so takeBack cannot change the Board while
+			// the move is played, unless the Game has quit meanwhile
+			if (state == GameState.AWAITING_MOVE) {
+				state = GameState.IN_PROGRESS;
+			}
+		}
+
+		try {
+			if (failure != null) {
+				throw failure;
+			}
+
+			Board board = boardManager.getBoard();
+
+			// ask again until the move is valid
+			if (!board.canPlaceToken(playerMove.getSquare())) {
+				synchronized (this) {
+					if (state == GameState.IN_PROGRESS) {
+						state = GameState.AWAITING_MOVE;
+					}
+				}
+				currentPlayer.requestPlayerMove(board, moveCallback);
+				return true;
 			}
 
+			boardManager.playerMove(playerMove);
+			position = boardManager.getBoard().snapshot();
+
+		} catch (QuitException ex) {
+			throw ex;
+		} catch (Exception ex) {
+			abandonGame(ex);
+		}
+
+		turnTimer.record(System.nanoTime() - turnStart);
+
+		return true;
+	}
+
+	/**
+	 * Abandons the current game rather than retry a turn that cannot succeed.
+	 * 
+	 */
+	private void abandonGame(Exception ex) {
+		view.renderErrorMessage("Game abandoned: " + ex.getMessage());
+		resetGame();
+		state = GameState.AWAITING_NEW_GAME;
+	}
+
+	/**
+	 * Hands a Player's move, or the reason it could not be chosen, to the
+	 * Game. If the Game has parked waiting for it the loop is resumed.
+	 * 
+	 */
+	private void deliver(MoveEvent move, Exception failure) {
+
+		synchronized (this) {
+			pendingMove = move;
+			pendingFailure = failure;
+
+			if (!parked) {
+				// the loop is still running and will pick the move up
+				return;
+			}
+
+			parked = false;
+		}
+
+		if (executor == null) {
+			resumeTask.run();
+		} else {
+			executor.execute(resumeTask);
 		}
 	}
 
@@ -135,27 +382,20 @@ public class Game implements OXOGameUIListener, BoardListener {
 	private void gameWon(Player winningPlayer) {
 		if (winningPlayer != null) {
 
-			playerManager.updatePlayerStats(winningPlayer);
-
 			view.renderHeader("GAME OVER");
 			view.renderBoard(boardManager.getBoard());
 			// inform the user about who the winning Player is
 			view.renderMessage(winningPlayer.getName() + " ("
 					+ winningPlayer.getToken() + ") Wins The Game!");
 			try {
-				view.renderPlayerStats(playerManager.getPlayersList());
+				playerManager.updatePlayerStats(winningPlayer);
 			} catch (IOException e) {
 				view.renderErrorMessage("Unable to Open/Create playerData! Stats Not Saved!");
 			}
-			resetGame();
-
-			// Ask the user if they want to play another game
-			if (view.promptUserForNewGame()) {
-				run();
-			} else {
-				quit();
-			}
+			view.renderPlayerStats(playerManager.getPlayersList());
+			renderLeaderboard();
 		}
+		resetGame();
 	}
 
 	/**
@@ -163,24 +403,32 @@ public class Game implements OXOGameUIListener, BoardListener {
 	 * 
 	 * @author dave
 	 */
+	@SuppressWarnings("unchecked")
 	private void gameDrawn() {
-		playerManager.updatePlayerStats();
-
 		view.renderHeader("GAME OVER");
 		view.renderBoard(boardManager.getBoard());
 		view.renderMessage("Game is a Stalemate!");
 		try {
-			view.renderPlayerStats(playerManager.getPlayersList());
+			playerManager.updatePlayerStats();
 		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			view.renderErrorMessage("Unable to Open/Create playerData! Stats Not Saved!");
 		}
+		view.renderPlayerStats(playerManager.getPlayersList());
+		renderLeaderboard();
 		resetGame();
+	}
 
-		if (view.promptUserForNewGame()) {
-			run();
-		} else {
-			quit();
+	/**
+	 * Displays the Leaderboard after a Game.
+	 * 
+	 */
+	@SuppressWarnings("unchecked")
+	private void renderLeaderboard() {
+		try {
+			view.renderLeaderboard(DataAccess.getLeaderboard(),
+					playerManager.getPlayersList());
+		} catch (IOException e) {
+			view.renderErrorMessage("Unable to Open/Create playerData! Leaderboard Not Available!");
 		}
 	}
 
@@ -189,6 +437,7 @@ public class Game implements OXOGameUIListener, BoardListener {
 	 */
 	private void resetGame() {
 		boardManager.resetBoard();
+		position = boardManager.getBoard().snapshot();
 	}
 
 	/**
@@ -207,10 +456,50 @@ public class Game implements OXOGameUIListener, BoardListener {
 			view.renderMessage(player.getName()
 					+ " joins the game using token '"
 					+ player.getToken().toString() + "'");
-			init();
 		}
 	}
 
+	/**
+	 * Creates the strategy of a new System Player for this Game's Board. This
+	 * method is called by the view layer while the user creates a Player.
+	 * 
+	 * @param difficulty
+	 *            how well the System Player should play
+	 * @return the strategy the System Player should use
+	 */
+	@Override
+	public MoveStrategy createStrategy(Difficulty difficulty) {
+		return StrategyFactory.create(difficulty, boardManager.getBoard());
+	}
+
+	/**
+	 * Takes back the current Player's last move and their opponent's reply,
+	 * so that it is still their turn. Only a Human Player waiting to move
+	 * can take moves back, and only while the Game is still waiting for
+	 * their move: once a move has been handed back it is played instead. This
+	 * is called by the view layer, possibly on another thread while the Game
+	 * is parked.
+	 * 
+	 * @return true if the moves were taken back false otherwise
+	 */
+	@Override
+	public synchronized boolean takeBack() {
+
+		if (state != GameState.AWAITING_MOVE
+				|| pendingMove != null || pendingFailure != null
+				|| !(currentPlayer instanceof HumanPlayer)
+				|| boardManager.getMoveCount() < PLAYERS_REQUIRED) {
+			return false;
+		}
+
+		for (int i = 0; i < PLAYERS_REQUIRED; i++) {
+			boardManager.undoMove();
+		}
+		position = boardManager.getBoard().snapshot();
+
+		return true;
+	}
+
 	/**
 	 * This event is called by the BoardManager to inform the Game that a row on
 	 * the Board contains three Tokens of the same type.
@@ -221,7 +510,8 @@ public class Game implements OXOGameUIListener, BoardListener {
 	 */
 	@Override
 	public void threeInARowAchieved(Token t) {
-		gameWon(t.getPlayer());
+		winningPlayer = t.getPlayer();
+		state = GameState.WON;
 	}
 
 	/**
@@ -233,20 +523,75 @@ public class Game implements OXOGameUIListener, BoardListener {
 	 */
 	@Override
 	public void boardIsFull() {
-		gameDrawn();
+		state = GameState.DRAWN;
+	}
+
+	/**
+	 * 
+	 * @return the current state of the Game
+	 */
+	public GameState getState() {
+		return state;
+	}
+
+	/**
+	 * Sets the Executor on which the loop is resumed after the Game has
+	 * parked. Without one the loop resumes on the thread that delivered the
+	 * move.
+	 * 
+	 * @param executor
+	 *            the Executor to resume the Game on
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * 
+	 * @return true if the Game has parked waiting for a Player's move
+	 */
+	public synchronized boolean isParked() {
+		return parked;
+	}
+
+	/**
+	 * Returns the latest snapshot of the Board. The snapshot is immutable and
+	 * replaced after every move, so any thread can read it, e.g. to show the
+	 * game to a spectator, without locking the Game.
+	 * 
+	 * @return the position on the Board after the last move
+	 */
+	public Position getPosition() {
+		return position;
+	}
+
+	/**
+	 * 
+	 * @return the timings of every turn played so far
+	 */
+	public TurnTimer getTurnTimer() {
+		return turnTimer;
 	}
 
 	/**
 	 * This event is called by both this class and the View class to quit the
-	 * Game and Application.
+	 * Game. The Players are released and the Game stops, only the first call
+	 * has any effect.
 	 * 
 	 * @author dave
 	 * 
 	 */
 	@Override
 	public void quit() {
+
+		if (hasQuit) {
+			return;
+		}
+
+		hasQuit = true;
+		state = GameState.QUIT;
+		playerManager.releasePlayers();
 		view.renderQuitMessage();
-		System.exit(0);
 	}
 
 }
@@ -0,0 +1,136 @@
+package oxogame.game;
+
+import oxogame.board.Board;
+import oxogame.board.BoardListener;
+import oxogame.board.BoardManager;
+import oxogame.player.Player;
+import oxogame.token.Token;
+
+/**
+ * A class that plays games between two Players without a user interface.
+ * Nothing is rendered, nobody is prompted, and the Players' statistics are
+ * left untouched, which makes it suitable for evaluating SystemPlayer
+ * strategies over large numbers of games.
+ *
+ * An engine owns its own Board, so separate engines can be used on separate
+ * threads, but a single engine must only be used by one thread at a time.
+ *
+ * @author David Hemming
+ */
+public class GameEngine implements BoardListener {
+
+    private final BoardManager boardManager;
+    private Token winningToken;
+    private boolean gameOver;
+
+    /**
+     * Creates an engine that plays on a standard 3 x 3 Board.
+     *
+     */
+    public GameEngine() {
+        this(3, 3, 3);
+    }
+
+    /**
+     *
+     * @param rows      the number of rows on the Board
+     * @param cols      the number of columns on the Board
+     * @param winLength the number of Tokens in a row needed to win
+     */
+    public GameEngine(int rows, int cols, int winLength) {
+        boardManager = new BoardManager(this, rows, cols, winLength);
+    }
+
+    /**
+     * Plays a series of games between two Players.  The Players take turns to
+     * make the first move, starting with the first Player.
+     *
+     * @param first     the first Player
+     * @param second    the second Player
+     * @param games     the number of games to play
+     * @return          the results, from the point of view of the first Player
+     */
+    public GameResults play(Player first, Player second, int games) {
+        GameResults results = new GameResults();
+
+        for (int i = 0; i < games; i++) {
+            boolean firstStarts = i % 2 == 0;
+            Player winner = firstStarts ? playGame(first, second) : playGame(second, first);
+
+            results.addGame(winner == first ? 1 : winner == second ? -1 : 0,
+                    boardManager.getBoard().getOccupiedCount());
+        }
+
+        return results;
+    }
+
+    /**
+     * Plays a single game to completion.
+     *
+     * @param starter   the Player who moves first
+     * @param other     the Player who moves second
+     * @return          the winning Player, or null if the game was drawn
+     * @throws IllegalStateException if a Player chooses an occupied Square
+     */
+    public Player playGame(Player starter, Player other) {
+        Board board = boardManager.getBoard();
+        Player player = starter;
+
+        boardManager.resetBoard();
+        winningToken = null;
+        gameOver = false;
+
+        while (!gameOver) {
+            int move = player.getPlayerMoveIndex(board);
+
+            if (!boardManager.playerMove(move, player.getToken())) {
+                throw new IllegalStateException(player.getName() + " made an illegal move");
+            }
+
+            player = player == starter ? other : starter;
+        }
+
+        if (winningToken == null)
+            return null;
+
+        return winningToken == starter.getToken() ? starter : other;
+    }
+
+    /**
+     *
+     * @return  the number of moves made in the last game played
+     */
+    public int getMoveCount() {
+        return boardManager.getMoveCount();
+    }
+
+    /**
+     * Returns a move of the last game played, e.g. for recording the game.
+     *
+     * @param ply   the number of moves made before the move
+     * @return      the index of the Square played on the move
+     */
+    public int getMove(int ply) {
+        return boardManager.getMove(ply);
+    }
+
+    /**
+     *
+     * @return  the Board the engine plays on
+     */
+    public Board getBoard() {
+        return boardManager.getBoard();
+    }
+
+    @Override
+    public void threeInARowAchieved(Token t) {
+        winningToken = t;
+        gameOver = true;
+    }
+
+    @Override
+    public void boardIsFull() {
+        gameOver = true;
+    }
+
+}
@@ -0,0 +1,90 @@
+package oxogame.game;
+
+/**
+ * A class that holds the aggregated results of a series of games between two
+ * Players, as played by a GameEngine.
+ *
+ * @author David Hemming
+ */
+public class GameResults {
+
+    private long games;
+    private long firstPlayerWins;
+    private long secondPlayerWins;
+    private long draws;
+    private long totalMoves;
+
+    /**
+     * Records the result of one game.
+     *
+     * @param outcome   1 if the first Player won, -1 if the second Player won,
+     *                  0 for a draw
+     * @param moves     the number of moves played in the game
+     */
+    void addGame(int outcome, int moves) {
+        games++;
+        totalMoves += moves;
+
+        if (outcome > 0)
+            firstPlayerWins++;
+        else if (outcome < 0)
+            secondPlayerWins++;
+        else
+            draws++;
+    }
+
+    /**
+     * @return the number of games played
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * @return the number of games won by the first Player
+     */
+    public long getFirstPlayerWins() {
+        return firstPlayerWins;
+    }
+
+    /**
+     * @return the number of games won by the second Player
+     */
+    public long getSecondPlayerWins() {
+        return secondPlayerWins;
+    }
+
+    /**
+     * @return the number of drawn games
+     */
+    public long getDraws() {
+        return draws;
+    }
+
+    /**
+     * @return the total number of moves played across all games
+     */
+    public long getTotalMoves() {
+        return totalMoves;
+    }
+
+    /**
+     * @return the average number of moves per game, 0 if no games were played
+     */
+    public double getAverageLength() {
+        return games == 0 ? 0 : (double) totalMoves / games;
+    }
+
+    /**
+     * Constructs a String summarising the results.
+     *
+     * @return  a String with the win, loss and draw counts
+     */
+    @Override
+    public String toString() {
+        return games + " Games: " + firstPlayerWins + " Wins, " + secondPlayerWins
+                + " Losses, " + draws + " Drawn, " + String.format("%.2f", getAverageLength())
+                + " Moves Per Game";
+    }
+
+}
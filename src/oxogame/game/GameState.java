@@ -0,0 +1,24 @@
+package oxogame.game;
+
+/**
+ * Enumerator for the states a Game moves through.  The Game's main loop
+ * performs one step for the current state on each pass.
+ *
+ * @author David Hemming
+ */
+public enum GameState {
+
+    // waiting for the user to decide whether to start a new game
+    AWAITING_NEW_GAME,
+    // a game is being played, each step is one Player's turn
+    IN_PROGRESS,
+    // a Player has been asked for their move, the Game parks in this state
+    // until the move arrives
+    AWAITING_MOVE,
+    // the last move won the game
+    WON,
+    // the last move filled the Board without a winner
+    DRAWN,
+    // the user has chosen to stop playing
+    QUIT
+}
@@ -0,0 +1,25 @@
+package oxogame.game;
+
+/**
+ * Receives a Player's move once it has been chosen.  A Player may call back
+ * before requestPlayerMove returns, or later from another thread, so
+ * implementations must not assume either.
+ *
+ * @author David Hemming
+ */
+public interface MoveCallback {
+
+    /**
+     * Called once the Player has chosen their move.
+     *
+     * @param move  the Player's move
+     */
+    public void moveChosen(MoveEvent move);
+
+    /**
+     * Called instead of moveChosen when no move could be obtained.
+     *
+     * @param e     the reason the move could not be obtained
+     */
+    public void moveFailed(Exception e);
+}
@@ -0,0 +1,312 @@
+package oxogame.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import oxogame.player.EloRating;
+import oxogame.player.Player;
+import oxogame.player.PlayerRegistry;
+import oxogame.token.Token;
+
+/**
+ * A class that runs a Tournament between many entrants, playing the matches
+ * of each round in parallel on a ForkJoinPool.
+ *
+ * Every match is played on its own GameEngine with freshly created Players
+ * and Tokens, so matches share no game state.  The Players are registered
+ * with the Tournament's own PlayerRegistry, so their names never clash with
+ * the Players of Games being played by people.  Match results are added to
+ * each entrant's atomic counters as the match finishes.
+ *
+ * Results and ratings are updated in a single batch at the end of each run:
+ * every match is rated against the ratings the entrants had when the run
+ * began, so the result does not depend on the order the matches finished in.
+ * If any match fails the whole run is discarded.
+ *
+ * @author David Hemming
+ */
+public class Tournament {
+
+    // the longest suffix added to an entrant's name to name a match's Player
+    static final String LONGEST_MATCH_SUFFIX = "#" + Long.MAX_VALUE + "a";
+
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+    private final int gamesPerMatch;
+    private final List<TournamentEntrant> entrants;
+    private final EloRating eloRating;
+    // Player names must be unique, so each match's Players are named after
+    // the entrant plus a match number
+    private final AtomicLong matchSequence = new AtomicLong();
+    private final PlayerRegistry registry = new PlayerRegistry();
+
+    /**
+     * Creates a Tournament played on a standard 3 x 3 Board.
+     *
+     * @param gamesPerMatch the number of games played between each pair
+     */
+    public Tournament(int gamesPerMatch) {
+        this(3, 3, 3, gamesPerMatch);
+    }
+
+    /**
+     *
+     * @param rows          the number of rows on the Board
+     * @param cols          the number of columns on the Board
+     * @param winLength     the number of Tokens in a row needed to win
+     * @param gamesPerMatch the number of games played between each pair
+     */
+    public Tournament(int rows, int cols, int winLength, int gamesPerMatch) {
+        this(rows, cols, winLength, gamesPerMatch, new EloRating());
+    }
+
+    /**
+     *
+     * @param rows          the number of rows on the Board
+     * @param cols          the number of columns on the Board
+     * @param winLength     the number of Tokens in a row needed to win
+     * @param gamesPerMatch the number of games played between each pair
+     * @param eloRating     rates the entrants after each run
+     */
+    public Tournament(int rows, int cols, int winLength, int gamesPerMatch,
+            EloRating eloRating) {
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+        this.gamesPerMatch = gamesPerMatch;
+        this.eloRating = eloRating;
+        entrants = new ArrayList<>();
+    }
+
+    /**
+     *
+     * @param entrant   the entrant to add
+     */
+    public void addEntrant(TournamentEntrant entrant) {
+        entrants.add(entrant);
+    }
+
+    /**
+     * Plays every entrant against every other entrant once.
+     *
+     * @param pool  the pool on which to play the matches
+     * @return      the entrants, highest points first
+     */
+    public List<TournamentEntrant> runRoundRobin(ForkJoinPool pool) {
+        List<TournamentEntrant[]> pairings = new ArrayList<>();
+
+        for (int i = 0; i < entrants.size(); i++) {
+            for (int j = i + 1; j < entrants.size(); j++) {
+                pairings.add(new TournamentEntrant[] {entrants.get(i), entrants.get(j)});
+            }
+        }
+
+        try {
+            pool.invoke(new MatchTask(pairings, 0, pairings.size()));
+        } catch (RuntimeException e) {
+            discardRun();
+            throw e;
+        }
+
+        updateRatings();
+
+        return getStandings();
+    }
+
+    /**
+     * Plays a number of Swiss rounds.  Each round entrants are paired with the
+     * next entrant on the same or closest score that they have not yet
+     * played.  With an odd number of entrants the lowest placed unpaired
+     * entrant sits the round out.
+     *
+     * @param rounds    the number of rounds to play
+     * @param pool      the pool on which to play the matches
+     * @return          the entrants, highest points first
+     */
+    public List<TournamentEntrant> runSwiss(int rounds, ForkJoinPool pool) {
+        Set<String> played = new HashSet<>();
+
+        for (int round = 0; round < rounds; round++) {
+            List<TournamentEntrant> unpaired = getRunStandings();
+            List<TournamentEntrant[]> pairings = new ArrayList<>();
+
+            while (unpaired.size() > 1) {
+                TournamentEntrant first = unpaired.remove(0);
+                int opponent = 0;
+
+                // take the closest entrant not yet played, or failing that
+                // the closest entrant
+                for (int i = 0; i < unpaired.size(); i++) {
+                    if (!played.contains(getPairingKey(first, unpaired.get(i)))) {
+                        opponent = i;
+                        break;
+                    }
+                }
+
+                TournamentEntrant second = unpaired.remove(opponent);
+                played.add(getPairingKey(first, second));
+                pairings.add(new TournamentEntrant[] {first, second});
+            }
+
+            try {
+                pool.invoke(new MatchTask(pairings, 0, pairings.size()));
+            } catch (RuntimeException e) {
+                discardRun();
+                throw e;
+            }
+        }
+
+        updateRatings();
+
+        return getStandings();
+    }
+
+    /**
+     *
+     * @return  the entrants, highest points first
+     */
+    public List<TournamentEntrant> getStandings() {
+        List<TournamentEntrant> standings = new ArrayList<>(entrants);
+
+        Collections.sort(standings, new Comparator<TournamentEntrant>() {
+            @Override
+            public int compare(TournamentEntrant a, TournamentEntrant b) {
+                return Long.compare(b.getPoints(), a.getPoints());
+            }
+        });
+
+        return standings;
+    }
+
+    /**
+     *
+     * @return  the entrants, highest points first counting the matches of
+     *          the run in progress
+     */
+    private List<TournamentEntrant> getRunStandings() {
+        List<TournamentEntrant> standings = new ArrayList<>(entrants);
+
+        Collections.sort(standings, new Comparator<TournamentEntrant>() {
+            @Override
+            public int compare(TournamentEntrant a, TournamentEntrant b) {
+                return Long.compare(b.getRunPoints(), a.getRunPoints());
+            }
+        });
+
+        return standings;
+    }
+
+    /**
+     * Plays a match between two entrants and adds the results to both.
+     *
+     * @param first     the first entrant
+     * @param second    the second entrant
+     */
+    private void playMatch(TournamentEntrant first, TournamentEntrant second) {
+        long match = matchSequence.incrementAndGet();
+        Player firstPlayer = null;
+        Player secondPlayer;
+
+        try {
+            firstPlayer = first.getPlayerFactory().createPlayer(
+                    first.getName() + "#" + match + "a", new Token('X'), registry);
+            secondPlayer = second.getPlayerFactory().createPlayer(
+                    second.getName() + "#" + match + "b", new Token('O'), registry);
+        } catch (Exception e) {
+            if (firstPlayer != null)
+                firstPlayer.release();
+            throw new IllegalStateException("Unable to create Players for match " + match, e);
+        }
+
+        GameResults results;
+
+        try {
+            results = new GameEngine(rows, cols, winLength)
+                    .play(firstPlayer, secondPlayer, gamesPerMatch);
+        } finally {
+            firstPlayer.release();
+            secondPlayer.release();
+        }
+
+        first.addResults(results.getFirstPlayerWins(), results.getSecondPlayerWins(),
+                results.getDraws());
+        second.addResults(results.getSecondPlayerWins(), results.getFirstPlayerWins(),
+                results.getDraws());
+
+        // ratings do not change until the run ends, so every match of the
+        // run is rated against the same ratings
+        double change = eloRating.getRatingChange(first.getRating(), second.getRating(),
+                results.getFirstPlayerWins() + 0.5 * results.getDraws(),
+                results.getGames());
+        first.addPendingRatingChange(change);
+        second.addPendingRatingChange(-change);
+    }
+
+    /**
+     * Applies the results and rating changes from every match of a run.
+     *
+     */
+    private void updateRatings() {
+
+        for (TournamentEntrant entrant : entrants) {
+            entrant.applyPendingResults();
+        }
+    }
+
+    /**
+     * Throws away the results of every match of a run that did not finish.
+     *
+     */
+    private void discardRun() {
+
+        for (TournamentEntrant entrant : entrants) {
+            entrant.discardPendingResults();
+        }
+    }
+
+    private static String getPairingKey(TournamentEntrant a, TournamentEntrant b) {
+        return a.getName().compareTo(b.getName()) < 0
+                ? a.getName() + "\n" + b.getName() : b.getName() + "\n" + a.getName();
+    }
+
+    /**
+     * Plays a range of pairings, splitting the range in half until each task
+     * plays a single match.
+     *
+     */
+    private class MatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<TournamentEntrant[]> pairings;
+        private final int from;
+        private final int to;
+
+        MatchTask(List<TournamentEntrant[]> pairings, int from, int to) {
+            this.pairings = pairings;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (to - from == 1) {
+                TournamentEntrant[] pairing = pairings.get(from);
+                playMatch(pairing[0], pairing[1]);
+            } else if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new MatchTask(pairings, from, middle),
+                        new MatchTask(pairings, middle, to));
+            }
+        }
+    }
+
+}
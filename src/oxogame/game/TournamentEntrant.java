@@ -0,0 +1,168 @@
+package oxogame.game;
+
+import java.util.concurrent.atomic.AtomicLong;
+import oxogame.player.EloRating;
+import oxogame.player.Player;
+import oxogame.player.PlayerFactory;
+
+/**
+ * A class that represents an entrant in a Tournament and keeps its running
+ * results.  The results are held in atomic counters so that matches being
+ * played on different threads can add to them without locking.
+ *
+ * The results of the matches in a run are held as pending until the run
+ * ends.  They are then either all applied or, if a match failed, all
+ * discarded, so a run never counts in part.
+ *
+ * @author David Hemming
+ */
+public class TournamentEntrant {
+
+    private final String name;
+    private final PlayerFactory playerFactory;
+    private final AtomicLong wins = new AtomicLong();
+    private final AtomicLong losses = new AtomicLong();
+    private final AtomicLong drawn = new AtomicLong();
+    // the results of the matches played since the run began
+    private final AtomicLong pendingWins = new AtomicLong();
+    private final AtomicLong pendingLosses = new AtomicLong();
+    private final AtomicLong pendingDrawn = new AtomicLong();
+    // the Elo rating, and the change to it from the matches played since
+    // ratings were last updated, both held as the bits of a double
+    private final AtomicLong rating =
+            new AtomicLong(Double.doubleToLongBits(EloRating.INITIAL_RATING));
+    private final AtomicLong pendingRatingChange =
+            new AtomicLong(Double.doubleToLongBits(0));
+
+    /**
+     *
+     * @param name          the name of the entrant, which must leave room
+     *                      for the match number added to each Player's name
+     * @param playerFactory creates the entrant's Player for each match
+     * @throws IllegalArgumentException if the name would not make a valid
+     *                      Player name in every match
+     */
+    public TournamentEntrant(String name, PlayerFactory playerFactory) {
+
+        if (!Player.isNameValid(name)
+                || !Player.isNameValid(name + Tournament.LONGEST_MATCH_SUFFIX)) {
+            throw new IllegalArgumentException("Entrant name is invalid or too long: " + name);
+        }
+
+        this.name = name;
+        this.playerFactory = playerFactory;
+    }
+
+    /**
+     * Adds the results of a match to the entrant's pending results.
+     *
+     * @param matchWins     the number of games the entrant won
+     * @param matchLosses   the number of games the entrant lost
+     * @param matchDrawn    the number of games that were drawn
+     */
+    void addResults(long matchWins, long matchLosses, long matchDrawn) {
+        pendingWins.addAndGet(matchWins);
+        pendingLosses.addAndGet(matchLosses);
+        pendingDrawn.addAndGet(matchDrawn);
+    }
+
+    /**
+     * Adds to the change that will be made to the entrant's rating when
+     * ratings are next updated.
+     *
+     * @param change    the change from a match
+     */
+    void addPendingRatingChange(double change) {
+        EloRating.addAndGet(pendingRatingChange, change);
+    }
+
+    /**
+     * Adds the pending results to the entrant's totals, applies the pending
+     * rating change, and clears them.
+     *
+     */
+    void applyPendingResults() {
+        long change = pendingRatingChange.getAndSet(Double.doubleToLongBits(0));
+
+        wins.addAndGet(pendingWins.getAndSet(0));
+        losses.addAndGet(pendingLosses.getAndSet(0));
+        drawn.addAndGet(pendingDrawn.getAndSet(0));
+        EloRating.addAndGet(rating, Double.longBitsToDouble(change));
+    }
+
+    /**
+     * Throws away the pending results and rating change.
+     *
+     */
+    void discardPendingResults() {
+        pendingWins.set(0);
+        pendingLosses.set(0);
+        pendingDrawn.set(0);
+        pendingRatingChange.set(Double.doubleToLongBits(0));
+    }
+
+    /**
+     *
+     * @return  the entrant's points including the pending results, which
+     *          rank entrants between the rounds of a run
+     */
+    long getRunPoints() {
+        return getPoints() + 2 * pendingWins.get() + pendingDrawn.get();
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the factory that creates the entrant's Players
+     */
+    public PlayerFactory getPlayerFactory() {
+        return playerFactory;
+    }
+
+    public long getWins() {
+        return wins.get();
+    }
+
+    public long getLosses() {
+        return losses.get();
+    }
+
+    public long getDrawn() {
+        return drawn.get();
+    }
+
+    public double getRating() {
+        return Double.longBitsToDouble(rating.get());
+    }
+
+    public void setRating(double rating) {
+        this.rating.set(Double.doubleToLongBits(rating));
+    }
+
+    /**
+     * Returns the entrant's score, two points for a win and one for a draw.
+     *
+     * @return  the number of points the entrant has scored
+     */
+    public long getPoints() {
+        return 2 * wins.get() + drawn.get();
+    }
+
+    /**
+     * Constructs a String containing the entrant's name and results.
+     *
+     * @return  a String with entrant name and results
+     */
+    @Override
+    public String toString() {
+        return name + "..." + getWins() + " Wins, " + getLosses() + " Losses, "
+                + getDrawn() + " Drawn, " + getPoints() + " Points, Rated "
+                + Math.round(getRating());
+    }
+
+}
@@ -0,0 +1,58 @@
+package oxogame.game;
+
+/**
+ * A class that records how long each turn of a Game takes, from asking the
+ * Player for a move to the move being placed on the Board.
+ *
+ * @author David Hemming
+ */
+public class TurnTimer {
+
+    private long turns;
+    private long totalNanos;
+    private long maxNanos;
+    private long lastNanos;
+
+    /**
+     * Records the duration of a turn.
+     *
+     * @param nanos the length of the turn in nanoseconds
+     */
+    public void record(long nanos) {
+        turns++;
+        totalNanos += nanos;
+        lastNanos = nanos;
+        if (nanos > maxNanos)
+            maxNanos = nanos;
+    }
+
+    /**
+     * @return the number of turns recorded
+     */
+    public long getTurns() {
+        return turns;
+    }
+
+    /**
+     * @return the length of the most recent turn in nanoseconds
+     */
+    public long getLastNanos() {
+        return lastNanos;
+    }
+
+    /**
+     * @return the length of the longest turn in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * @return the average length of a turn in nanoseconds, 0 if no turns
+     *         have been recorded
+     */
+    public long getAverageNanos() {
+        return turns == 0 ? 0 : totalNanos / turns;
+    }
+
+}
@@ -0,0 +1,99 @@
+package oxogame.player;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class that rates Players with the Elo system.  After a game each Player's
+ * rating moves by K times the difference between their actual score (1 for a
+ * win, 0.5 for a draw, 0 for a loss) and the score their rating predicted, so
+ * the points one Player gains the other loses.
+ *
+ * Ratings are held as the bits of a double in an AtomicLong and are changed
+ * with compare-and-set, so games between different Players can be rated on
+ * many threads at once, and nothing is allocated per game.
+ *
+ * @author David Hemming
+ */
+public class EloRating {
+
+    public static final double INITIAL_RATING = 1500;
+    public static final double DEFAULT_K_FACTOR = 32;
+
+    private final double kFactor;
+
+    public EloRating() {
+        this(DEFAULT_K_FACTOR);
+    }
+
+    /**
+     *
+     * @param kFactor   the most a rating can change by in a single game
+     */
+    public EloRating(double kFactor) {
+        this.kFactor = kFactor;
+    }
+
+    /**
+     * Returns the score a Player is expected to make against an opponent.
+     *
+     * @param rating            the rating of the Player
+     * @param opponentRating    the rating of the opponent
+     * @return                  the expected score, between 0 and 1
+     */
+    public static double getExpectedScore(double rating, double opponentRating) {
+        return 1 / (1 + Math.pow(10, (opponentRating - rating) / 400));
+    }
+
+    /**
+     * Returns how much a Player's rating changes by after a number of games
+     * against the same opponent, all rated against the ratings the two
+     * Players had before the first game.
+     *
+     * @param rating            the rating of the Player
+     * @param opponentRating    the rating of the opponent
+     * @param score             the Player's total score over the games
+     * @param games             the number of games played
+     * @return                  the change to the Player's rating, the
+     *                          opponent's rating changes by the negation
+     */
+    public double getRatingChange(double rating, double opponentRating,
+            double score, long games) {
+        return kFactor * (score - games * getExpectedScore(rating, opponentRating));
+    }
+
+    /**
+     * Rates a game between two Players.
+     *
+     * @param player    the first Player
+     * @param opponent  the second Player
+     * @param score     the first Player's score, 1 for a win, 0.5 for a draw
+     *                  and 0 for a loss
+     */
+    public void update(Player player, Player opponent, double score) {
+        double change = getRatingChange(player.getRating(), opponent.getRating(),
+                score, 1);
+
+        player.addRating(change);
+        opponent.addRating(-change);
+    }
+
+    /**
+     * Atomically adds to a double held as bits in an AtomicLong.
+     *
+     * @param bits  the double, as returned by Double.doubleToLongBits
+     * @param delta the amount to add
+     * @return      the new value
+     */
+    public static double addAndGet(AtomicLong bits, double delta) {
+        long current;
+        double next;
+
+        do {
+            current = bits.get();
+            next = Double.longBitsToDouble(current) + delta;
+        } while (!bits.compareAndSet(current, Double.doubleToLongBits(next)));
+
+        return next;
+    }
+
+}
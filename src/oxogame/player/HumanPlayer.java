@@ -1,8 +1,10 @@
 package oxogame.player;
 
 import oxogame.board.Board;
+import oxogame.game.MoveCallback;
 import oxogame.game.MoveEvent;
 import oxogame.token.Token;
+import oxogame.userinterface.AsyncHumanPlayerControlInterface;
 import oxogame.userinterface.HumanPlayerControlInterface;
 
 /**
@@ -36,4 +38,22 @@ public class HumanPlayer extends Player {
         return userMoveInterface.promptPlayerForNextMove(this, board);
     }
 
+    /**
+     * Requests the user's move without blocking if the interface supports
+     * it, otherwise waits for the move as getPlayerMove does.
+     *
+     * @param board     the board object
+     * @param callback  receives the Players move
+     */
+    @Override
+    public void requestPlayerMove(Board board, MoveCallback callback) {
+
+        if (userMoveInterface instanceof AsyncHumanPlayerControlInterface) {
+            ((AsyncHumanPlayerControlInterface) userMoveInterface)
+                    .requestPlayerMove(this, board, callback);
+        } else {
+            super.requestPlayerMove(board, callback);
+        }
+    }
+
 }
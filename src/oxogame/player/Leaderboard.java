@@ -0,0 +1,315 @@
+package oxogame.player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import oxogame.dataaccess.PlayerRecord;
+
+/**
+ * A class that keeps Players ranked as their results arrive, so that the top
+ * Players, the rank of a Player and the Players ranked around them can be
+ * found without sorting the whole roster.
+ *
+ * Players are held in an indexable skip list: each link records how many
+ * Players it skips over, so the rank of a Player is the sum of the links
+ * followed to reach them.  Adding, updating and ranking a Player all take
+ * O(log n) time, listing the top k Players takes O(k).
+ *
+ * @author David Hemming
+ */
+public class Leaderboard {
+
+    private static final int MAX_LEVEL = 32;
+
+    private final LeaderboardOrder order;
+    private final Node head;
+    // the node of each Player, keyed by lower case name
+    private final Map<String, Node> nodes;
+    private final Random random;
+    private int level;
+    private int size;
+    // reused by insert and remove to record the last node visited on each
+    // level, and the rank of that node
+    private final Node[] update;
+    private final int[] rank;
+
+    /**
+     *
+     * @param order the order the Players are ranked in
+     */
+    public Leaderboard(LeaderboardOrder order) {
+        this.order = order;
+        head = new Node(null, MAX_LEVEL);
+        nodes = new HashMap<>();
+        random = new Random();
+        level = 1;
+        size = 0;
+        update = new Node[MAX_LEVEL];
+        rank = new int[MAX_LEVEL];
+    }
+
+    /**
+     * Adds a Player to the Leaderboard, or moves them to their new rank if
+     * they are already on it.
+     *
+     * @param record    the latest statistics of the Player
+     */
+    public synchronized void update(PlayerRecord record) {
+        String key = getKey(record.getName());
+        Node node = nodes.get(key);
+
+        if (node != null) {
+            remove(node);
+        }
+
+        nodes.put(key, insert(record));
+    }
+
+    /**
+     * Takes a Player off the Leaderboard.
+     *
+     * @param name  the name of the Player, case is ignored
+     * @return      true if the Player was on the Leaderboard
+     *              false otherwise
+     */
+    public synchronized boolean remove(String name) {
+        Node node = nodes.remove(getKey(name));
+
+        if (node == null) {
+            return false;
+        }
+
+        remove(node);
+
+        return true;
+    }
+
+    /**
+     * Returns the rank of a Player, the best Player being ranked 1.
+     *
+     * @param name  the name of the Player, case is ignored
+     * @return      the rank of the Player, or -1 if they are not on the
+     *              Leaderboard
+     */
+    public synchronized int getRank(String name) {
+        Node node = nodes.get(getKey(name));
+
+        if (node == null) {
+            return -1;
+        }
+
+        Node x = head;
+        int traversed = 0;
+
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null
+                    && order.compare(x.next[i].record, node.record) <= 0) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+        }
+
+        return traversed;
+    }
+
+    /**
+     *
+     * @param rank  the rank to look up, from 1 to size()
+     * @return      the statistics of the Player at the rank
+     */
+    public synchronized PlayerRecord get(int rank) {
+
+        if (rank < 1 || rank > size) {
+            throw new IndexOutOfBoundsException("No Player is ranked " + rank);
+        }
+
+        return getNode(rank).record;
+    }
+
+    /**
+     * Returns the best Players, best first.
+     *
+     * @param k the number of Players to return
+     * @return  the top k Players, or every Player if there are fewer than k
+     */
+    public synchronized List<PlayerRecord> getTop(int k) {
+        return getRange(1, k);
+    }
+
+    /**
+     * Returns a Player and the Players ranked either side of them, best
+     * first.
+     *
+     * @param name      the name of the Player, case is ignored
+     * @param distance  how many places above and below the Player to include
+     * @return          the Players ranked within distance of the Player, or an
+     *                  empty List if the Player is not on the Leaderboard
+     */
+    public synchronized List<PlayerRecord> getNeighbours(String name, int distance) {
+        int playerRank = getRank(name);
+
+        if (playerRank < 0) {
+            return new ArrayList<>();
+        }
+
+        int first = Math.max(1, playerRank - distance);
+
+        return getRange(first, playerRank + distance - first + 1);
+    }
+
+    /**
+     *
+     * @return  the number of Players on the Leaderboard
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     *
+     * @return  the order the Players are ranked in
+     */
+    public LeaderboardOrder getOrder() {
+        return order;
+    }
+
+    private List<PlayerRecord> getRange(int first, int count) {
+        List<PlayerRecord> records = new ArrayList<>();
+
+        if (first > size) {
+            return records;
+        }
+
+        for (Node x = getNode(first); x != null && records.size() < count; x = x.next[0]) {
+            records.add(x.record);
+        }
+
+        return records;
+    }
+
+    /**
+     * Finds the node at a rank by following the links whose spans add up to
+     * it.
+     *
+     */
+    private Node getNode(int rank) {
+        Node x = head;
+        int traversed = 0;
+
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+        }
+
+        return x;
+    }
+
+    private Node insert(PlayerRecord record) {
+        Node x = head;
+
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && order.compare(x.next[i].record, record) < 0) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int nodeLevel = getRandomLevel();
+
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = nodeLevel;
+        }
+
+        Node node = new Node(record, nodeLevel);
+
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            // split the span of the link the node was inserted into
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+
+        // links above the node now skip over one more Player
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+
+        size++;
+
+        return node;
+    }
+
+    private void remove(Node node) {
+        Node x = head;
+
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && order.compare(x.next[i].record, node.record) < 0) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == node) {
+                update[i].span[i] += node.span[i] - 1;
+                update[i].next[i] = node.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+
+        size--;
+    }
+
+    /**
+     * Picks the level of a new node, each level being half as likely as the
+     * one below it.
+     *
+     */
+    private int getRandomLevel() {
+        int bits = random.nextInt() | (1 << (MAX_LEVEL - 1));
+
+        return Math.min(MAX_LEVEL, Integer.numberOfTrailingZeros(bits) + 1);
+    }
+
+    private static String getKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A Player on the Leaderboard, linked to the next node on each of its
+     * levels.
+     *
+     */
+    private static class Node {
+
+        private final PlayerRecord record;
+        private final Node[] next;
+        // span[i] is the number of Players the link next[i] moves past
+        private final int[] span;
+
+        private Node(PlayerRecord record, int level) {
+            this.record = record;
+            next = new Node[level];
+            span = new int[level];
+        }
+    }
+
+}
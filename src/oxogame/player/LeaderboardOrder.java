@@ -0,0 +1,64 @@
+package oxogame.player;
+
+import java.util.Comparator;
+import oxogame.dataaccess.PlayerRecord;
+
+/**
+ * Enumerator for the different ways a Leaderboard can rank Players.  Each
+ * order puts the better Player first, and breaks ties by name so that no two
+ * Players are ever equal.
+ *
+ * @author David Hemming
+ */
+public enum LeaderboardOrder implements Comparator<PlayerRecord> {
+
+    // The share of games won, then the most wins
+    WIN_RATE {
+        @Override
+        public int compare(PlayerRecord a, PlayerRecord b) {
+            // compare wins(a) / games(a) with wins(b) / games(b) without
+            // dividing, a Player with no games has a win rate of 0
+            long gamesA = Math.max(1, getGames(a));
+            long gamesB = Math.max(1, getGames(b));
+            int result = Long.compare(b.getWins() * gamesA, a.getWins() * gamesB);
+
+            if (result == 0) {
+                result = Integer.compare(b.getWins(), a.getWins());
+            }
+
+            return result != 0 ? result : compareNames(a, b);
+        }
+    },
+
+    // The Elo rating
+    RATING {
+        @Override
+        public int compare(PlayerRecord a, PlayerRecord b) {
+            int result = Double.compare(b.getRating(), a.getRating());
+
+            return result != 0 ? result : compareNames(a, b);
+        }
+    },
+
+    // Two points for a win and one for a draw, as in a Tournament
+    POINTS {
+        @Override
+        public int compare(PlayerRecord a, PlayerRecord b) {
+            int result = Long.compare(getPoints(b), getPoints(a));
+
+            return result != 0 ? result : compareNames(a, b);
+        }
+    };
+
+    private static long getGames(PlayerRecord r) {
+        return (long) r.getWins() + r.getLosses() + r.getDrawn();
+    }
+
+    private static long getPoints(PlayerRecord r) {
+        return 2L * r.getWins() + r.getDrawn();
+    }
+
+    private static int compareNames(PlayerRecord a, PlayerRecord b) {
+        return String.CASE_INSENSITIVE_ORDER.compare(a.getName(), b.getName());
+    }
+}
@@ -1,8 +1,11 @@
 package oxogame.player;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import oxogame.board.Board;
+import oxogame.board.Square;
+import oxogame.dataaccess.PlayerStore;
+import oxogame.game.MoveCallback;
 import oxogame.game.MoveEvent;
 import oxogame.token.Token;
 
@@ -16,19 +19,26 @@ public abstract class Player {
 
     // A sequence that automatically increments with each new Player 
     // registration and is used to generate Player IDs
-    private static int playerSequence = 1;
-    // A list of Player names. Used to prevent two Players from sharing the 
-    // same name
-    private static List<String> playerNames = new ArrayList<>();
+    private static final AtomicInteger playerSequence = new AtomicInteger(1);
 
     protected int playerID;
     protected String name;
     protected Token token;
+    // the registry holding the Player's name while they are in play
+    private final PlayerRegistry registry;
     
     // Player statistics
     private int wins;
     private int losses;
     private int drawn;
+    // the Elo rating, held as the bits of a double so that it can be
+    // changed atomically (see EloRating)
+    private final AtomicLong rating =
+            new AtomicLong(Double.doubleToLongBits(EloRating.INITIAL_RATING));
+    // MoveEvents never change and neither do a Board's Squares, so one
+    // MoveEvent per Square is reused for every move made on the same Board
+    private Board moveEventBoard;
+    private MoveEvent[] moveEvents;
 
     /**
      *
@@ -37,21 +47,42 @@ public abstract class Player {
      * @throws Exception
      */
     public Player(String name, Token token) throws Exception {
+        this(name, token, PlayerRegistry.getInstance());
+    }
+
+    /**
+     * Creates a Player whose name only has to be unique within a registry
+     * other than the shared one, such as the Players of a Tournament.
+     *
+     * @param name          the name of the Player
+     * @param token         the Players chosen Token
+     * @param registry      the registry that holds the Player's name
+     * @throws Exception
+     */
+    public Player(String name, Token token, PlayerRegistry registry)
+            throws Exception {
 
         if (!isNameValid(name)) {
             throw new Exception("Player Name is invalid");
         }
         
-        if (!isNameUnique(name)) {
-            throw new Exception("Player Name already exists");
-        }
-
         this.name = name;
         this.token = token;
+        this.registry = registry;
+
+        // registering both checks and claims the name, so two threads can
+        // never both take the same name
+        if (!registry.register(this)) {
+            throw new Exception("Player Name already exists");
+        }
 
-        setToken(token);
-        playerNames.add(name);
-        this.playerID = playerSequence++;
+        try {
+            setToken(token);
+        } catch (Exception e) {
+            release();
+            throw e;
+        }
+        this.playerID = playerSequence.getAndIncrement();
         
         wins = 0;
         losses = 0;
@@ -82,6 +113,7 @@ public abstract class Player {
 
         token.setPlayer(this);
         this.token = token;
+        moveEventBoard = null;
 
     }
 
@@ -96,7 +128,7 @@ public abstract class Player {
      * @return the playerSequence
      */
     public static int getNextPlayerSequence() {
-        return playerSequence;
+        return playerSequence.get();
     }
     
     /**
@@ -108,18 +140,42 @@ public abstract class Player {
      */
     public static boolean isNameValid(String name) {
         // Note: this would be a better method if Regex were implemented
-        return name != null && !name.equals("") && !name.equals(" ");
+        return name != null && !name.equals("") && !name.equals(" ")
+                && !isNameTooLong(name);
     }
     
     /**
-     * Checks to see if the Player name has already been registered.
+     * Checks to see if a Player name is too long to be saved.  The limit is
+     * on the UTF-8 encoding of the name, so it is fewer characters for names
+     * outside ASCII.
+     *
+     * @param name  the proposed player name
+     * @return      true if the name is longer than PlayerStore.MAX_NAME_BYTES
+     *              false otherwise
+     */
+    public static boolean isNameTooLong(String name) {
+        return PlayerStore.isNameTooLong(name);
+    }
+    
+    /**
+     * Checks to see if the Player name has already been registered.  Case is
+     * ignored.
      *
      * @param name  the name to check for uniqueness
      * @return      true if the name is unique
      *              false otherwise
      */
     public static boolean isNameUnique(String name) {
-        return !playerNames.contains(name);
+        return !PlayerRegistry.getInstance().isRegistered(name);
+    }
+
+    /**
+     * Releases the Player's name once they have left play, so that it can be
+     * used by another Player.
+     *
+     */
+    public void release() {
+        registry.release(this);
     }
     
     /**
@@ -132,6 +188,71 @@ public abstract class Player {
      */
     public abstract MoveEvent getPlayerMove(Board board);
 
+    /**
+     * Gets a Players desired move as the index of a Square, which is all that
+     * code playing many games, such as the GameEngine, needs.
+     *
+     * @param board the board object
+     * @return      the index of the Square the Player chose, as returned by
+     *              Board.getIndex
+     */
+    public int getPlayerMoveIndex(Board board) {
+        Square square = getPlayerMove(board).getSquare();
+
+        return board.getIndex(square.getXcoord(), square.getYcoord());
+    }
+
+    /**
+     * Returns the MoveEvent for this Player placing their Token in a Square.
+     * The MoveEvent is created the first time it is needed and reused after
+     * that.
+     *
+     * @param board the Board the move is made on
+     * @param index the index of the Square, as returned by Board.getIndex
+     * @return      a MoveEvent for the Square and this Players Token
+     */
+    public MoveEvent getMoveEvent(Board board, int index) {
+
+        if (moveEventBoard != board) {
+            moveEvents = new MoveEvent[board.getRows() * board.getCols()];
+            moveEventBoard = board;
+        }
+
+        MoveEvent move = moveEvents[index];
+
+        if (move == null) {
+            move = new MoveEvent(board.getSquare(index), token);
+            moveEvents[index] = move;
+        }
+
+        return move;
+    }
+
+    /**
+     * Requests a Players desired move, passing it to a callback once it has
+     * been chosen.  By default the move is chosen on the calling thread and
+     * the callback is called before this method returns, Players that wait
+     * on something outside the application can override this to return at
+     * once.
+     *
+     * @param board     the board object, sent to the Player object so that
+     *                  Player can choose a suitable Square
+     * @param callback  receives the Players move, or the reason it could not
+     *                  be chosen
+     */
+    public void requestPlayerMove(Board board, MoveCallback callback) {
+        MoveEvent move;
+
+        try {
+            move = getPlayerMove(board);
+        } catch (Exception e) {
+            callback.moveFailed(e);
+            return;
+        }
+
+        callback.moveChosen(move);
+    }
+
     public void incrementWins() {
         this.wins++;
     }
@@ -168,6 +289,24 @@ public abstract class Player {
 		this.drawn = drawn;
 	}
 
+    public double getRating() {
+        return Double.longBitsToDouble(rating.get());
+    }
+
+    public void setRating(double rating) {
+        this.rating.set(Double.doubleToLongBits(rating));
+    }
+
+    /**
+     * Atomically changes the Player's rating.
+     *
+     * @param change    the amount to add to the rating
+     * @return          the new rating
+     */
+    public double addRating(double change) {
+        return EloRating.addAndGet(rating, change);
+    }
+
 	/**
      * Constructs a String containing the Players information and statistics.
      *
@@ -0,0 +1,25 @@
+package oxogame.player;
+
+import oxogame.token.Token;
+
+/**
+ * Interface that allows code which plays many games, such as a Tournament, to
+ * create fresh Player objects for each game it hosts.  The Players are
+ * registered with a registry of the caller's, so they never take a name from,
+ * or give one to, the Players of Games being played by people.
+ *
+ * @author David Hemming
+ */
+public interface PlayerFactory {
+
+    /**
+     *
+     * @param name      the name of the Player
+     * @param token     the Players Token
+     * @param registry  the registry the Player must be registered with
+     * @return          the new Player
+     * @throws Exception
+     */
+    public Player createPlayer(String name, Token token, PlayerRegistry registry)
+            throws Exception;
+}
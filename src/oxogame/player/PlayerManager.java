@@ -5,6 +5,8 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
+import oxogame.dataaccess.DataAccess;
+
 /**
  * A class that manages Players of the game.
  *
@@ -12,11 +14,23 @@ import java.util.List;
  */
 public class PlayerManager {
     
-    private static Iterator<Player> iterator;
+    // Tracks whose turn it is, each Game has its own PlayerManager so the turn
+    // order of one Game never affects another
+    private Iterator<Player> iterator;
     private List<Player> playerList;
+    private final EloRating eloRating;
     
     public PlayerManager() {
+        this(new EloRating());
+    }
+    
+    /**
+     *
+     * @param eloRating rates the Players after each Game
+     */
+    public PlayerManager(EloRating eloRating) {
         playerList = new ArrayList<>();
+        this.eloRating = eloRating;
     }
     
     /**
@@ -44,12 +58,13 @@ public class PlayerManager {
     
     /**
      * Updates the Player statistics after a Game in which one of the Players
-     * was declared a winner.
+     * was declared a winner, and rates the winner's win over each of the
+     * other Players.  The new statistics are saved in the background.
      *
      * @param winningPlayer the Player that won the game
-     * @throws IOException 
+     * @throws IOException  if the player store cannot be opened
      */
-    public void updatePlayerStats(Player winningPlayer){
+    public void updatePlayerStats(Player winningPlayer) throws IOException {
         
         for (Player p : playerList) {
             if (p == winningPlayer)
@@ -61,17 +76,61 @@ public class PlayerManager {
                 p.incrementLosses();
             }
         }
+        
+        for (Player p : playerList) {
+            if (p != winningPlayer)
+                eloRating.update(winningPlayer, p, 1);
+        }
+        
+        writeBehind();
     }
     
     /**
-     * Updates the Player statistics after a Game that was declared a draw
+     * Updates the Player statistics after a Game that was declared a draw, and
+     * rates the draw between each pair of Players.  The new statistics are
+     * saved in the background.
      *
+     * @throws IOException  if the player store cannot be opened
      */
-    public void updatePlayerStats() {
+    public void updatePlayerStats() throws IOException {
         
         for (Player p : playerList) {
             p.incrementDrawn();
         }
+        
+        for (int i = 0; i < playerList.size(); i++) {
+            for (int j = i + 1; j < playerList.size(); j++) {
+                eloRating.update(playerList.get(i), playerList.get(j), 0.5);
+            }
+        }
+        
+        writeBehind();
+    }
+        
+    /**
+     * Releases every Player's name and removes them from the Manager.
+     *
+     */
+    public void releasePlayers() {
+        
+        for (Player p : playerList) {
+            p.release();
+        }
+        
+        playerList.clear();
+        iterator = null;
+    }
+    
+    /**
+     * Queues the statistics of every Player to be saved.
+     *
+     * @throws IOException
+     */
+    private void writeBehind() throws IOException {
+        
+        for (Player p : playerList) {
+            DataAccess.writeBehind(p);
+        }
     }
         
     /**
@@ -0,0 +1,92 @@
+package oxogame.player;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A class that keeps track of the Players currently in play, so that no two
+ * Players share a name.  Names are compared ignoring case, as they are when
+ * Players are saved.
+ *
+ * Players are indexed by name in a ConcurrentHashMap, so registering,
+ * releasing and looking up a Player take constant time and can happen on
+ * many threads at once.  A Player should be released once it has left play,
+ * after which its name can be used again.
+ *
+ * @author David Hemming
+ */
+public class PlayerRegistry {
+
+    // The registry every Player is registered with when it is created
+    private static final PlayerRegistry instance = new PlayerRegistry();
+
+    private final ConcurrentMap<String, Player> players;
+
+    public PlayerRegistry() {
+        players = new ConcurrentHashMap<>();
+    }
+
+    /**
+     *
+     * @return  the registry every Player is registered with
+     */
+    public static PlayerRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Registers a Player under their name, unless the name is already taken.
+     *
+     * @param player    the Player to register
+     * @return          true if the Player was registered
+     *                  false if another Player already has the name
+     */
+    public boolean register(Player player) {
+        return players.putIfAbsent(getKey(player.getName()), player) == null;
+    }
+
+    /**
+     * Releases a Player's name so that it can be used again.
+     *
+     * @param player    the Player to release
+     * @return          true if the Player was registered
+     *                  false otherwise
+     */
+    public boolean release(Player player) {
+        return players.remove(getKey(player.getName()), player);
+    }
+
+    /**
+     *
+     * @param name  the name to look up, case is ignored
+     * @return      the Player registered under the name, or null if the name
+     *              is free
+     */
+    public Player lookup(String name) {
+        return players.get(getKey(name));
+    }
+
+    /**
+     *
+     * @param name  the name to check, case is ignored
+     * @return      true if a Player is registered under the name
+     *              false otherwise
+     */
+    public boolean isRegistered(String name) {
+        return players.containsKey(getKey(name));
+    }
+
+    /**
+     *
+     * @return  the number of registered Players
+     */
+    public int size() {
+        return players.size();
+    }
+
+    private static String getKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -1,47 +1,112 @@
 package oxogame.player;
 
-import java.util.List;
-import java.util.Random;
+import oxogame.ai.MctsStrategy;
+import oxogame.ai.MoveStrategy;
+import oxogame.ai.OpeningBookStrategy;
+import oxogame.ai.RandomStrategy;
 import oxogame.board.Board;
-import oxogame.board.Square;
 import oxogame.game.MoveEvent;
 import oxogame.token.Token;
 
 /**
- * A class that represents a System Player.
+ * A class that represents a System Player.  The choice of move is delegated
+ * to a MoveStrategy.
  *
  * @author Dave
  */
 public class SystemPlayer extends Player {
     
+    private final MoveStrategy strategy;
+    
     /**
+     * Creates a SystemPlayer that plays a random vacant Square.
      *
      * @param name          the Players name
      * @param token         the Players chosen Token
      * @throws Exception
      */
     public SystemPlayer(String name, Token token) throws Exception {
-        super(name, token);
+        this(name, token, new RandomStrategy());
+    }
+    
+    /**
+     *
+     * @param name          the Players name
+     * @param token         the Players chosen Token
+     * @param strategy      the algorithm used to choose the Players moves
+     * @throws Exception
+     */
+    public SystemPlayer(String name, Token token, MoveStrategy strategy)
+            throws Exception {
+        this(name, token, strategy, PlayerRegistry.getInstance());
+    }
+    
+    /**
+     *
+     * @param name          the Players name
+     * @param token         the Players chosen Token
+     * @param strategy      the algorithm used to choose the Players moves
+     * @param registry      the registry that holds the Players name
+     * @throws Exception
+     */
+    public SystemPlayer(String name, Token token, MoveStrategy strategy,
+            PlayerRegistry registry) throws Exception {
+        super(name, token, registry);
+        this.strategy = strategy;
     }
     
     /**
-     * Gets the SystemPlayer's move. At the moment it just gets a List of 
-     * vacant squares and then randomly selects one.
+     * Gets the SystemPlayer's move by asking its MoveStrategy to choose a
+     * vacant Square.
      *
-     * @param board
-     * @return
+     * @param board the Board on which to play
+     * @return      a MoveEvent for the chosen Square
      */
     @Override
     public MoveEvent getPlayerMove(Board board) {
-//        String random = list.get(randomizer.nextInt(list.size()));
-        Square square;
-        List<Square> vacantSquareList = board.getVacantSquareList();
+        return getMoveEvent(board, strategy.chooseMove(board, token));
+    }
+    
+    /**
+     * Gets the SystemPlayer's move straight from its MoveStrategy, without
+     * a MoveEvent.
+     *
+     * @param board the Board on which to play
+     * @return      the index of the chosen Square
+     */
+    @Override
+    public int getPlayerMoveIndex(Board board) {
+        return strategy.chooseMove(board, token);
+    }
+    
+    /**
+     *
+     * @return  the algorithm used to choose the Players moves
+     */
+    public MoveStrategy getStrategy() {
+        return strategy;
+    }
+    
+    /**
+     * Releases the Player's name and stops any threads its MoveStrategy
+     * searches on.
+     *
+     */
+    @Override
+    public void release() {
+        super.release();
         
-        square = vacantSquareList.get(new Random().nextInt(vacantSquareList.size()));
+        MoveStrategy search = strategy;
         
-        return new MoveEvent(square, token);
+        // the book only covers the opening, the search behind it owns the
+        // threads
+        if (search instanceof OpeningBookStrategy) {
+            search = ((OpeningBookStrategy) search).getFallback();
+        }
         
-//        return new MoveEvent(new Square(1,1), token);
+        if (search instanceof MctsStrategy) {
+            ((MctsStrategy) search).shutdown();
+        }
     }
     
     
@@ -0,0 +1,198 @@
+package oxogame.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+
+/**
+ * The state of one client connection to a NioGameServer: its channel, the
+ * bytes of the line it is part way through sending, and the output waiting
+ * to be written to it.
+ *
+ * Reading and writing the channel is done by the connection's SelectorLoop.
+ * Output is produced by the session's threads through getOutputStream, which
+ * buffers everything written to it and hands it to the SelectorLoop when it
+ * is flushed.
+ *
+ * @author David Hemming
+ */
+class ChannelConnection {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int READ_BUFFER_SIZE = 1024;
+    // the longest line a client can send, anything beyond it is dropped so
+    // that a client cannot make the server buffer without limit
+    private static final int MAX_LINE_LENGTH = 1024;
+
+    private final SocketChannel channel;
+    private final SelectorLoop loop;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    // buffers written to the channel in order, guarded by itself
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    private final OutputStream outputStream = new ConnectionOutputStream();
+    private ChannelTextInterface view;
+    private SelectionKey key;
+    private volatile boolean closeRequested;
+
+    /**
+     *
+     * @param channel   the client's channel, in non-blocking mode
+     * @param loop      the SelectorLoop that reads and writes the channel
+     */
+    ChannelConnection(SocketChannel channel, SelectorLoop loop) {
+        this.channel = channel;
+        this.loop = loop;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    ChannelTextInterface getView() {
+        return view;
+    }
+
+    void setView(ChannelTextInterface view) {
+        this.view = view;
+    }
+
+    /**
+     *
+     * @return  a stream whose output is sent to the client each time it is
+     *          flushed
+     */
+    OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * Reads what the client has sent and passes each complete line to the
+     * view.  Called by the SelectorLoop when the channel is readable.
+     *
+     * @return              false if the client has closed the connection
+     * @throws IOException  if the channel cannot be read
+     */
+    boolean read() throws IOException {
+
+        if (channel.read(readBuffer) < 0) {
+            return false;
+        }
+
+        readBuffer.flip();
+
+        while (readBuffer.hasRemaining()) {
+            byte b = readBuffer.get();
+
+            if (b == '\n') {
+                view.lineReceived(new String(line.toByteArray(), UTF_8));
+                line.reset();
+            } else if (b != '\r' && line.size() < MAX_LINE_LENGTH) {
+                line.write(b);
+            }
+        }
+
+        readBuffer.clear();
+
+        return true;
+    }
+
+    /**
+     * Writes as much of the waiting output as the channel will take.  Called
+     * by the SelectorLoop when the channel is writable.
+     *
+     * @return              true if all of the output has been written
+     * @throws IOException  if the channel cannot be written
+     */
+    boolean write() throws IOException {
+
+        synchronized (outbound) {
+            while (!outbound.isEmpty()) {
+                ByteBuffer buffer = outbound.peek();
+
+                channel.write(buffer);
+                if (buffer.hasRemaining())
+                    return false;
+
+                outbound.poll();
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     *
+     * @return  true if there is output waiting to be written
+     */
+    boolean hasOutput() {
+
+        synchronized (outbound) {
+            return !outbound.isEmpty();
+        }
+    }
+
+    /**
+     * Asks for the connection to be closed once all of its output has been
+     * written.
+     *
+     */
+    void closeWhenWritten() {
+        closeRequested = true;
+        loop.requestWrite(this);
+    }
+
+    boolean isCloseRequested() {
+        return closeRequested;
+    }
+
+    /**
+     * Collects the bytes written by the session and queues them for the
+     * channel each time the stream is flushed.
+     *
+     */
+    private class ConnectionOutputStream extends OutputStream {
+
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+        @Override
+        public synchronized void write(int b) {
+            pending.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            pending.write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+
+            synchronized (this) {
+                if (pending.size() == 0)
+                    return;
+
+                synchronized (outbound) {
+                    outbound.add(ByteBuffer.wrap(pending.toByteArray()));
+                }
+                pending.reset();
+            }
+
+            loop.requestWrite(ChannelConnection.this);
+        }
+    }
+
+}
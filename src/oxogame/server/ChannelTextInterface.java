@@ -0,0 +1,205 @@
+package oxogame.server;
+
+import java.io.PrintStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import oxogame.board.Board;
+import oxogame.board.Square;
+import oxogame.game.MoveCallback;
+import oxogame.game.MoveEvent;
+import oxogame.player.Player;
+import oxogame.userinterface.AsyncHumanPlayerControlInterface;
+import oxogame.userinterface.TextInterface;
+import util.QuitException;
+
+/**
+ * A TextInterface for a client of a NioGameServer.  Everything is rendered
+ * exactly as it is on the console, into the connection's output buffer, and
+ * each line the client sends is one line of input.
+ *
+ * Moves are asked for without blocking: the prompt is sent and the request
+ * returns, and the line that answers it is parsed on the SelectorLoop's
+ * thread, so a Game waiting on its user holds no thread.  Any other prompt,
+ * such as registering a Player, waits on a queue of the lines received.
+ *
+ * @author David Hemming
+ */
+class ChannelTextInterface extends TextInterface implements AsyncHumanPlayerControlInterface {
+
+    // queued after the last line once the connection has closed, compared by
+    // identity so that no line the client sends can match it
+    private static final String END_OF_INPUT = new String();
+    // returned by answer() when the user quits instead of moving
+    private static final MoveEvent QUIT = new MoveEvent(null, null);
+
+    private final ChannelConnection connection;
+    // lines received while no move is being waited for
+    private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    // the move being waited for, guarded by this
+    private Player movePlayer;
+    private Board moveBoard;
+    private MoveCallback moveCallback;
+
+    /**
+     *
+     * @param connection    the client's connection
+     * @param out           a stream over the connection's output
+     */
+    ChannelTextInterface(ChannelConnection connection, PrintStream out) {
+        super(out);
+        this.connection = connection;
+    }
+
+    /**
+     * Sends the move prompt and returns.  Lines the user typed before the
+     * prompt are taken as answers to it.
+     *
+     */
+    @Override
+    public void requestPlayerMove(Player player, Board board, MoveCallback callback) {
+        MoveEvent move = null;
+
+        synchronized (this) {
+            movePlayer = player;
+            moveBoard = board;
+            moveCallback = callback;
+            print(MOVE_PROMPT + ": ");
+
+            String line;
+            while (move == null && (line = lines.peek()) != null) {
+                // the end of input is left queued for any later prompt
+                if (line != END_OF_INPUT)
+                    lines.poll();
+                move = answer(line);
+            }
+
+            if (move != null)
+                clearMove();
+        }
+
+        flush();
+
+        if (move != null)
+            complete(callback, move);
+    }
+
+    /**
+     * Passes a line from the client to the move being waited for, or queues
+     * it for the next prompt.  Called on the SelectorLoop's thread.
+     *
+     * @param line  the line received, without its line terminator
+     */
+    void lineReceived(String line) {
+        MoveCallback callback;
+        MoveEvent move;
+
+        synchronized (this) {
+            if (moveCallback == null) {
+                lines.add(line);
+                return;
+            }
+
+            move = answer(line);
+            callback = moveCallback;
+            if (move != null)
+                clearMove();
+        }
+
+        flush();
+
+        if (move != null)
+            complete(callback, move);
+    }
+
+    /**
+     * Tells the view that the connection has closed, which is treated as
+     * the user quitting.
+     *
+     */
+    void inputClosed() {
+        lineReceived(END_OF_INPUT);
+    }
+
+    /**
+     * Waits for the next line from the client.
+     *
+     */
+    @Override
+    protected String readLine() {
+        String line;
+
+        flush();
+
+        try {
+            line = lines.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            line = END_OF_INPUT;
+        }
+
+        if (line == END_OF_INPUT) {
+            lines.add(END_OF_INPUT);
+            fireQuitEvent();
+        }
+
+        return line;
+    }
+
+    /**
+     * Says goodbye and closes the connection once it has been sent.
+     *
+     */
+    @Override
+    public void renderQuitMessage() {
+        super.renderQuitMessage();
+        flush();
+        connection.closeWhenWritten();
+    }
+
+    /**
+     * Treats a line as the answer to the move being waited for.  The caller
+     * must hold the lock on this view.
+     *
+     * @param line  the line received
+     * @return      the move, QUIT if the user has quit, or null if the line
+     *              is not a valid move and the user has been asked again
+     */
+    private MoveEvent answer(String line) {
+
+        if (line == END_OF_INPUT || isQuitKeyword(line)) {
+            return QUIT;
+        }
+
+        if (isTakeBackKeyword(line)) {
+            takeBack(moveBoard);
+            print(MOVE_PROMPT + ": ");
+            return null;
+        }
+
+        Square square = parseMove(line, moveBoard);
+
+        if (square == null) {
+            print(MOVE_PROMPT + ": ");
+            return null;
+        }
+
+        return movePlayer.getMoveEvent(moveBoard,
+                moveBoard.getIndex(square.getXcoord(), square.getYcoord()));
+    }
+
+    private void clearMove() {
+        movePlayer = null;
+        moveBoard = null;
+        moveCallback = null;
+    }
+
+    private static void complete(MoveCallback callback, MoveEvent move) {
+
+        if (move == QUIT) {
+            callback.moveFailed(new QuitException());
+        } else {
+            callback.moveChosen(move);
+        }
+    }
+
+}
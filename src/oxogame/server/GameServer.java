@@ -0,0 +1,186 @@
+package oxogame.server;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import oxogame.game.Game;
+import oxogame.userinterface.TextInterface;
+
+/**
+ * A server that hosts many independent Games in a single JVM.  Clients
+ * connect over a local socket and play with the same line based text
+ * interface as the console: each line the client sends is one line of input,
+ * and everything the Game displays is sent back.  Closing the connection is
+ * treated as quitting.
+ *
+ * Each connection gets its own session: a TextInterface over the socket and
+ * a Game with its own BoardManager, TokenManager and PlayerManager.  Sessions
+ * share only the player store and the PlayerRegistry, both of which are
+ * thread safe, so a Player can only be at one table at a time.
+ *
+ * A session spends almost all of its time waiting for its client, so each
+ * session runs on its own thread with a small stack rather than holding a
+ * whole JVM per table.
+ *
+ * @author David Hemming
+ */
+public class GameServer {
+
+    public static final int DEFAULT_PORT = 4040;
+    // a session's call stack is shallow and does not grow with the number of
+    // games played, so it needs far less than the default stack
+    private static final long SESSION_STACK_SIZE = 256 * 1024;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions;
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong sessionSequence = new AtomicLong();
+
+    /**
+     * Creates a server for standard 3 x 3 Games.
+     *
+     * @param port          the local port to listen on, 0 for any free port
+     * @throws IOException  if the port cannot be bound
+     */
+    public GameServer(int port) throws IOException {
+        this(port, 3, 3, 3);
+    }
+
+    /**
+     *
+     * @param port          the local port to listen on, 0 for any free port
+     * @param rows          the number of rows on each Board
+     * @param cols          the number of columns on each Board
+     * @param winLength     the number of Tokens in a row needed to win
+     * @throws IOException  if the port cannot be bound
+     */
+    public GameServer(int port, int rows, int cols, int winLength) throws IOException {
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        sessions = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(null, r, "session-" + sessionSequence.incrementAndGet(),
+                        SESSION_STACK_SIZE);
+            }
+        });
+    }
+
+    /**
+     * Accepts connections and starts a session for each one, until the
+     * server is closed.
+     *
+     * @throws IOException  if accepting a connection fails for any reason
+     *                      other than the server being closed
+     */
+    public void serve() throws IOException {
+
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if (serverSocket.isClosed())
+                    return;
+                throw e;
+            }
+
+            sessions.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runSession(socket);
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops accepting connections and waits for the sessions in progress to
+     * finish.
+     *
+     * @param timeoutMillis how long to wait for the sessions
+     * @throws IOException
+     */
+    public void close(long timeoutMillis) throws IOException {
+        serverSocket.close();
+        sessions.shutdown();
+
+        try {
+            sessions.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     *
+     * @return  the port the server is listening on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     *
+     * @return  the number of sessions in progress
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * Plays Games with a client until they quit or disconnect.
+     *
+     * @param socket    the client's connection
+     */
+    private void runSession(Socket socket) {
+        activeSessions.incrementAndGet();
+
+        try (Socket s = socket) {
+            TextInterface view = new TextInterface(s.getInputStream(),
+                    new PrintStream(s.getOutputStream(), true, "UTF-8"));
+            Game game = new Game(view, rows, cols, winLength);
+
+            view.renderBanner();
+            game.init();
+        } catch (IOException e) {
+            // the client has gone, there is no one left to tell
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Runs a server until the process is stopped.
+     *
+     * @param args  optionally the port to listen on
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        GameServer server = new GameServer(port);
+
+        System.out.println("Listening on " + InetAddress.getLoopbackAddress().getHostAddress()
+                + ":" + server.getPort());
+        server.serve();
+    }
+
+}
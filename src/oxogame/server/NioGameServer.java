@@ -0,0 +1,207 @@
+package oxogame.server;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import oxogame.game.Game;
+
+/**
+ * A server that hosts many Games over non-blocking channels.  Clients see
+ * the same line based text interface as they do with GameServer, but all of
+ * the connections are read and written by a few SelectorLoop threads, each
+ * with its own buffers per connection.
+ *
+ * A Game only needs a thread while it is doing something.  Waiting for a
+ * move, which is where a session spends most of its time, parks the Game
+ * (see ChannelTextInterface) and its next turn runs on the worker pool once
+ * the move arrives.  Prompts outside of play, such as registering a Player,
+ * still wait on a worker thread.
+ *
+ * @author David Hemming
+ */
+public class NioGameServer {
+
+    public static final int DEFAULT_PORT = 4041;
+    private static final long WORKER_STACK_SIZE = 256 * 1024;
+
+    private final ServerSocketChannel serverChannel;
+    private final SelectorLoop[] loops;
+    private final Thread[] loopThreads;
+    private final ExecutorService workers;
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong workerSequence = new AtomicLong();
+    // the loop the next connection is given to, only used by serve()
+    private int nextLoop;
+
+    /**
+     * Creates a server for standard 3 x 3 Games, with a SelectorLoop for
+     * every two processors.
+     *
+     * @param port          the local port to listen on, 0 for any free port
+     * @throws IOException  if the port cannot be bound
+     */
+    public NioGameServer(int port) throws IOException {
+        this(port, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 3, 3, 3);
+    }
+
+    /**
+     *
+     * @param port          the local port to listen on, 0 for any free port
+     * @param selectors     the number of SelectorLoop threads
+     * @param rows          the number of rows on each Board
+     * @param cols          the number of columns on each Board
+     * @param winLength     the number of Tokens in a row needed to win
+     * @throws IOException  if the port cannot be bound
+     */
+    public NioGameServer(int port, int selectors, int rows, int cols,
+            int winLength) throws IOException {
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+
+        loops = new SelectorLoop[selectors];
+        loopThreads = new Thread[selectors];
+        for (int i = 0; i < selectors; i++) {
+            loops[i] = new SelectorLoop(activeSessions);
+            loopThreads[i] = new Thread(loops[i], "selector-" + (i + 1));
+        }
+
+        workers = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(null, r, "worker-" + workerSequence.incrementAndGet(),
+                        WORKER_STACK_SIZE);
+            }
+        });
+    }
+
+    /**
+     * Starts the SelectorLoops, then accepts connections and starts a session
+     * for each one, until the server is closed.
+     *
+     * @throws IOException  if accepting a connection fails for any reason
+     *                      other than the server being closed
+     */
+    public void serve() throws IOException {
+
+        for (Thread thread : loopThreads) {
+            thread.start();
+        }
+
+        while (serverChannel.isOpen()) {
+            SocketChannel channel;
+
+            try {
+                channel = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            startSession(channel, loops[nextLoop++ % loops.length]);
+        }
+    }
+
+    /**
+     * Stops accepting connections, closes every connection and waits for the
+     * Games to finish quitting.
+     *
+     * @param timeoutMillis how long to wait for the Games
+     * @throws IOException
+     */
+    public void close(long timeoutMillis) throws IOException {
+        serverChannel.close();
+
+        try {
+            for (int i = 0; i < loops.length; i++) {
+                loops[i].stop();
+                if (loopThreads[i].isAlive())
+                    loopThreads[i].join(timeoutMillis);
+            }
+
+            workers.shutdown();
+            workers.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     *
+     * @return  the port the server is listening on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     *
+     * @return  the number of open connections
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * Creates the view and Game for a new connection and starts the Game on
+     * the worker pool.
+     *
+     * @param channel   the client's channel
+     * @param loop      the SelectorLoop that will read and write it
+     * @throws IOException
+     */
+    private void startSession(SocketChannel channel, SelectorLoop loop) throws IOException {
+        ChannelConnection connection = new ChannelConnection(channel, loop);
+        final ChannelTextInterface view = new ChannelTextInterface(connection,
+                new PrintStream(connection.getOutputStream(), false, "UTF-8"));
+        final Game game = new Game(view, rows, cols, winLength);
+
+        connection.setView(view);
+        game.setExecutor(workers);
+        activeSessions.incrementAndGet();
+        loop.register(connection);
+
+        workers.execute(new Runnable() {
+            @Override
+            public void run() {
+                view.renderBanner();
+                // returns when the user quits, or when the Game first parks
+                game.init();
+            }
+        });
+    }
+
+    /**
+     * Runs a server until the process is stopped.
+     *
+     * @param args  optionally the port to listen on
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        NioGameServer server = new NioGameServer(port);
+
+        System.out.println("Listening on " + InetAddress.getLoopbackAddress().getHostAddress()
+                + ":" + server.getPort());
+        server.serve();
+    }
+
+}
@@ -0,0 +1,179 @@
+package oxogame.server;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread that does all of the reading and writing for a share of a
+ * NioGameServer's connections, using a single Selector.
+ *
+ * Other threads never touch the Selector's keys directly: new connections
+ * and requests to write are queued, and the Selector is woken to pick them
+ * up.  Complete lines of input are passed to each connection's view on this
+ * thread, so views must deal with them quickly and never block.
+ *
+ * @author David Hemming
+ */
+class SelectorLoop implements Runnable {
+
+    private final Selector selector;
+    private final AtomicInteger activeSessions;
+    private final Queue<ChannelConnection> registrations = new ConcurrentLinkedQueue<>();
+    private final Queue<ChannelConnection> writeRequests = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    /**
+     *
+     * @param activeSessions    the count of open connections, decremented as
+     *                          each connection is closed
+     * @throws IOException      if a Selector cannot be opened
+     */
+    SelectorLoop(AtomicInteger activeSessions) throws IOException {
+        selector = Selector.open();
+        this.activeSessions = activeSessions;
+    }
+
+    /**
+     * Hands a new connection to this loop.
+     *
+     * @param connection    the connection to read and write
+     */
+    void register(ChannelConnection connection) {
+        registrations.add(connection);
+        selector.wakeup();
+    }
+
+    /**
+     * Asks for a connection's waiting output to be written.
+     *
+     * @param connection    the connection with output waiting
+     */
+    void requestWrite(ChannelConnection connection) {
+        writeRequests.add(connection);
+        selector.wakeup();
+    }
+
+    /**
+     * Stops the loop.  Every connection it holds is closed before the loop's
+     * thread ends.
+     *
+     */
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+
+        try {
+            while (running) {
+                selector.select();
+                registerConnections();
+                enableWrites();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } catch (IOException e) {
+            // the Selector has failed, fall through and close everything
+        } finally {
+            registerConnections();
+            for (SelectionKey key : selector.keys()) {
+                close((ChannelConnection) key.attachment());
+            }
+
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+    }
+
+    private void registerConnections() {
+        ChannelConnection connection;
+
+        while ((connection = registrations.poll()) != null) {
+            try {
+                connection.setKey(connection.getChannel().register(selector,
+                        SelectionKey.OP_READ, connection));
+            } catch (ClosedChannelException e) {
+                close(connection);
+            }
+        }
+    }
+
+    private void enableWrites() {
+        ChannelConnection connection;
+
+        while ((connection = writeRequests.poll()) != null) {
+            SelectionKey key = connection.getKey();
+
+            if (key != null && key.isValid()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    /**
+     * Reads from or writes to the connection whose key is ready.
+     *
+     * @param key   the selected key
+     */
+    private void handle(SelectionKey key) {
+        ChannelConnection connection = (ChannelConnection) key.attachment();
+
+        try {
+            if (key.isReadable() && !connection.read()) {
+                close(connection);
+                return;
+            }
+
+            if (key.isValid() && key.isWritable() && connection.write()) {
+                if (connection.isCloseRequested()) {
+                    close(connection);
+                } else if (!connection.hasOutput()) {
+                    // more output may have been queued since the write
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            }
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+
+    /**
+     * Closes a connection and tells its view that there will be no more
+     * input, so that its Game quits.
+     *
+     * @param connection    the connection to close
+     */
+    private void close(ChannelConnection connection) {
+
+        if (!connection.getChannel().isOpen()) {
+            return;
+        }
+
+        try {
+            connection.getChannel().close();
+        } catch (IOException e) {
+            // the connection is gone either way
+        }
+
+        activeSessions.decrementAndGet();
+        connection.getView().inputClosed();
+    }
+
+}
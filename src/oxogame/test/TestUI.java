@@ -3,6 +3,7 @@ package oxogame.test;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import oxogame.ai.Difficulty;
 import oxogame.player.HumanPlayer;
 import oxogame.player.Player;
 import oxogame.player.SystemPlayer;
@@ -45,7 +46,8 @@ public class TestUI extends TextInterface {
             
         } else if (playerRequests == 1) {
             try {
-                player = new SystemPlayer("HAL", availableTokens.get(0));
+                player = new SystemPlayer("HAL", availableTokens.get(0),
+                        createStrategy(Difficulty.HARD));
             } catch (Exception ex) {
                 Logger.getLogger(TestUI.class.getName()).log(Level.SEVERE, null, ex);
             }
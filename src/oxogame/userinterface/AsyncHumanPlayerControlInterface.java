@@ -0,0 +1,18 @@
+package oxogame.userinterface;
+
+import oxogame.board.Board;
+import oxogame.game.MoveCallback;
+import oxogame.player.Player;
+
+/**
+ * This interface extends the HumanPlayerControlInterface for views that can
+ * wait for a user's move without blocking the calling thread.  The request
+ * returns at once, and the move is passed to a MoveCallback when the user
+ * has entered it, so a Game waiting on a user holds no thread.
+ *
+ * @author David Hemming
+ */
+public interface AsyncHumanPlayerControlInterface extends HumanPlayerControlInterface {
+
+    public void requestPlayerMove(Player player, Board board, MoveCallback callback);
+}
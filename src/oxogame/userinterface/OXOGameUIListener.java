@@ -1,16 +1,36 @@
 package oxogame.userinterface;
 
+import oxogame.ai.Difficulty;
+import oxogame.ai.MoveStrategy;
 import oxogame.player.Player;
 import util.UIListener;
 
 /**
  * This interface extends the UIListener interface by adding the ability for 
  * the UI to let a Controller know that a new Player has been created, and 
- * sending it the newly created Player
+ * sending it the newly created Player, to ask for moves to be taken back and
+ * to ask for the strategy of a new System Player
  *
  * @author David Hemming
  */
 public interface OXOGameUIListener extends UIListener {
 
     public void newPlayer(Player player);
+
+    /**
+     * Takes back the last move of the Player whose turn it is, and the
+     * reply to it.
+     *
+     * @return  true if the moves were taken back
+     *          false if there is nothing to take back
+     */
+    public boolean takeBack();
+
+    /**
+     * Creates the strategy of a new System Player for the Controller's Board.
+     *
+     * @param difficulty    how well the Player should play
+     * @return              the strategy the Player should use
+     */
+    public MoveStrategy createStrategy(Difficulty difficulty);
 }
@@ -1,20 +1,26 @@
 package oxogame.userinterface;
 
-import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.util.List;
 import java.util.TreeMap;
 
+import oxogame.ai.Difficulty;
+import oxogame.ai.MoveStrategy;
+import oxogame.ai.StrategyFactory;
 import oxogame.board.Board;
 import oxogame.board.Square;
-import oxogame.dataaccess.DataAccess;
+import oxogame.dataaccess.PlayerRecord;
+import oxogame.dataaccess.PlayerRoster;
 import oxogame.game.MoveEvent;
 import oxogame.player.HumanPlayer;
+import oxogame.player.Leaderboard;
 import oxogame.player.Player;
 import oxogame.player.PlayerType;
 import oxogame.player.SystemPlayer;
 import oxogame.token.Token;
 import oxogame.token.TokenManager;
+import util.QuitException;
 import util.Strings;
 import util.TextUI;
 
@@ -26,6 +32,48 @@ import util.TextUI;
 public class TextInterface extends TextUI implements
 		HumanPlayerControlInterface {
 
+	// the number of saved Players listed on each page of the player select menu
+	private static final int PLAYERS_PER_PAGE = 10;
+	// the number of Players listed at the top of the leaderboard
+	private static final int LEADERBOARD_SIZE = 5;
+	// the prompt for a Player's move
+	protected static final String MOVE_PROMPT = "x,y";
+	// entered instead of a move to take back the Player's last move
+	private static final String TAKE_BACK_KEYWORD = "undo";
+
+	/**
+	 * Creates a User Interface on the console.
+	 * 
+	 */
+	public TextInterface() {
+		super();
+	}
+
+	/**
+	 * Creates a User Interface that talks to a remote user, one line of text
+	 * at a time.
+	 * 
+	 * @param in
+	 *            the stream the user's input is read from
+	 * @param out
+	 *            the stream all output, including errors, is written to
+	 */
+	public TextInterface(InputStream in, PrintStream out) {
+		super(in, out, out);
+	}
+
+	/**
+	 * Creates a User Interface that writes to a remote user and gets their
+	 * input some other way. Subclasses using this constructor must override
+	 * readLine.
+	 * 
+	 * @param out
+	 *            the stream all output, including errors, is written to
+	 */
+	protected TextInterface(PrintStream out) {
+		super(out, out);
+	}
+
 	/**
 	 * Prints a banner and intro to the program to the console
 	 * 
@@ -34,6 +82,7 @@ public class TextInterface extends TextUI implements
 		printHeader("TIC TAC TOE", TEXT_ALIGN.CENTER);
 		println();
 		println("To exit type 'quit' at any time");
+		println("To take back your last move type '" + TAKE_BACK_KEYWORD + "'");
 	}
 
 	/**
@@ -42,27 +91,55 @@ public class TextInterface extends TextUI implements
 	 * @author dave
 	 * @param players
 	 *            the players who's statistics are to be printed to the console
-	 * @throws IOException 
 	 */
-	public void renderPlayerStats(List<Player> players) throws IOException {
-		
-		String[] playerData;
+	public void renderPlayerStats(List<Player> players) {
 
 		if (players != null) {
 			println();
 			printHeader("PLAYER STATS");
 			println();
 			for (Player p : players) {
-				DataAccess.searchAndWritePlayer(p);
-			}
-			for (String line : DataAccess.readData()) {
-				playerData = line.split(";");
-				println(playerData[0]+"..."+playerData[1]+" Wins, "+playerData[2]+" Losses, "+playerData[3]+" Drawn");
+				println(p.getName() + "..." + p.getWins() + " Wins, "
+						+ p.getLosses() + " Losses, " + p.getDrawn() + " Drawn");
 			}
 		}
 
 	}
 
+	/**
+	 * Displays the top of the Leaderboard and the rank of each Player in the
+	 * game.
+	 * 
+	 * @param leaderboard
+	 *            the ranked saved Players
+	 * @param players
+	 *            the Players in the game
+	 */
+	public void renderLeaderboard(Leaderboard leaderboard, List<Player> players) {
+
+		if (leaderboard.size() == 0) {
+			return;
+		}
+
+		println();
+		printHeader("LEADERBOARD");
+		println();
+
+		List<PlayerRecord> top = leaderboard.getTop(LEADERBOARD_SIZE);
+		for (int i = 0; i < top.size(); i++) {
+			println((i + 1) + ". " + top.get(i));
+		}
+
+		println();
+		for (Player p : players) {
+			int rank = leaderboard.getRank(p.getName());
+			if (rank > 0) {
+				println(p.getName() + " is ranked " + rank + " of "
+						+ leaderboard.size());
+			}
+		}
+	}
+
 	/**
 	 * Displays a message upon the user quitting the program
 	 * 
@@ -108,7 +185,7 @@ public class TextInterface extends TextUI implements
 		String b = "";
 
 		b += "\n";
-		for (int i = 0; i < board.getCols(); i++) {
+		for (int i = 0; i < board.getRows(); i++) {
 			b += getRenderedRow(board, i);
 		}
 
@@ -152,7 +229,7 @@ public class TextInterface extends TextUI implements
 
 			// print the Y coordinates
 			for (int i = 0; i < board.getCols(); i++) {
-				r += i + "       ";
+				r += String.format("%-8d", i);
 			}
 
 			r += "\n";
@@ -173,8 +250,8 @@ public class TextInterface extends TextUI implements
 
 		// middle part of the row
 		r += "\n";
-		r += x;
-		r += "  |";
+		r += String.format("%-3d", x);
+		r += "|";
 		for (Square s : row) {
 			// render the Tokens symbol if the current Square has a Token
 			if (s.hasToken()) {
@@ -215,41 +292,67 @@ public class TextInterface extends TextUI implements
 
 	/**
 	 * Used by the Controller to request that the user create and submit another
-	 * Player to the Game.
+	 * Player to the Game. The saved Players are listed a page at a time, only
+	 * the Players on the current page are read from the roster.
 	 * 
 	 * @author leo
+	 * @param roster
+	 *            the saved Players the user can choose from
 	 * @param availableTokens
-	 * @param playersList
 	 */
-	public void requestPlayer(ArrayList<String> playersList,
-			List<Token> availableTokens) {
-
-		Player player;
-		String[] splitLine;
-		TreeMap<Integer, String> players = new TreeMap<>();
+	public void requestPlayer(PlayerRoster roster, List<Token> availableTokens) {
 
-		println();
-		printHeader("PLAYER SELECT", TEXT_ALIGN.LEFT);
-		println();
-
-		for (int i = 0; i < playersList.size(); i++) {
-			splitLine = playersList.get(i).split(";");
-
-			players.put(i + 1, splitLine[0]);
-		}
-		players.put(playersList.size() + 1, "New Player");
+		Player player = null;
+		int pages = (roster.size() + PLAYERS_PER_PAGE - 1) / PLAYERS_PER_PAGE;
+		int page = 0;
 
-		println();
-		displayMenu(players);
-		println();
+		while (player == null) {
+			TreeMap<Integer, String> menu = new TreeMap<>();
+			int first = page * PLAYERS_PER_PAGE;
+			int count = Math.min(PLAYERS_PER_PAGE, roster.size() - first);
+			int option = count + 1;
+			int nextPage = -1;
+			int previousPage = -1;
+			int goToPage = -1;
+
+			for (int i = 0; i < count; i++) {
+				menu.put(i + 1, roster.getName(first + i));
+			}
+			if (page < pages - 1) {
+				nextPage = option;
+				menu.put(option++, "Next Page");
+			}
+			if (page > 0) {
+				previousPage = option;
+				menu.put(option++, "Previous Page");
+			}
+			if (pages > 2) {
+				goToPage = option;
+				menu.put(option++, "Go To Page");
+			}
+			menu.put(option, "New Player");
 
-		int selection = getMenuSelection("Select Player", players);
+			println();
+			printHeader("PLAYER SELECT (PAGE " + (page + 1) + " OF " + pages
+					+ ")", TEXT_ALIGN.LEFT);
+			println();
+			displayMenu(menu);
+			println();
 
-		if (selection <= playersList.size()) {
-			String selectedPlayer = playersList.get(selection - 1);
-			player = createPlayer(selectedPlayer, availableTokens);
-		} else {
-			player = createPlayer(availableTokens);
+			int selection = getMenuSelection("Select Player", menu);
+
+			if (selection <= count) {
+				player = createPlayer(roster.getRecord(first + selection - 1),
+						availableTokens);
+			} else if (selection == nextPage) {
+				page++;
+			} else if (selection == previousPage) {
+				page--;
+			} else if (selection == goToPage) {
+				page = promptUserForPage(pages) - 1;
+			} else {
+				player = createPlayer(availableTokens);
+			}
 		}
 
 		// when Player is created let the Controller (as a registered Listener
@@ -313,9 +416,12 @@ public class TextInterface extends TextUI implements
 				if (playerType == PlayerType.HUMAN_PLAYER) {
 					player = new HumanPlayer(playerName, playerToken, this);
 				} else {
-					player = new SystemPlayer(playerName, playerToken);
+					player = new SystemPlayer(playerName, playerToken,
+							createStrategy(promptUserForDifficulty()));
 				}
 
+			} catch (QuitException e) {
+				throw e;
 			} catch (Exception e) {
 				printError(e.getMessage());
 			}
@@ -328,42 +434,41 @@ public class TextInterface extends TextUI implements
 	 * Walks the user through the process of creating a new Player for the game
 	 * 
 	 * @author leo
+	 * @param selectedPlayer
+	 *            the saved statistics of the chosen Player
 	 * @param availableTokens
 	 *            the Tokens that are available for a new Player to use
-	 * @param selectedPlayer
-	 * @return the newly created Player
+	 * @return the newly created Player, or null if the chosen Player is
+	 *         already playing
 	 */
-	protected Player createPlayer(String selectedPlayer,
+	protected Player createPlayer(PlayerRecord selectedPlayer,
 			List<Token> availableTokens) {
 
-		String playerName;
 		Token playerToken;
 		Player player = null;
-		String[] playerData = selectedPlayer.split(";");
+
+		if (!Player.isNameUnique(selectedPlayer.getName())) {
+			printError(selectedPlayer.getName() + " is already playing");
+			return null;
+		}
 
 		while (player == null) {
 			try {
-				playerName = playerData[0];
 				playerToken = promptUserForPlayerToken(availableTokens);
 
-				player = new HumanPlayer(playerName, playerToken, this);
-				try {
-					player.setWins(Integer.parseInt(playerData[1]));
-				} catch (NumberFormatException e) {
-					player.setWins(0);
-				}
-				try {
-					player.setDrawn(Integer.parseInt(playerData[2]));
-				} catch (NumberFormatException e) {
-					player.setDrawn(0);
-				}
-				try {
-					player.setLosses(Integer.parseInt(playerData[3]));
-				} catch (NumberFormatException e) {
-					player.setLosses(0);
-				}
+				player = new HumanPlayer(selectedPlayer.getName(),
+						playerToken, this);
+				player.setWins(selectedPlayer.getWins());
+				player.setLosses(selectedPlayer.getLosses());
+				player.setDrawn(selectedPlayer.getDrawn());
+				player.setRating(selectedPlayer.getRating());
+			} catch (QuitException e) {
+				throw e;
 			} catch (Exception e) {
 				printError(e.getMessage());
+				// another game took the Player first
+				if (!Player.isNameUnique(selectedPlayer.getName()))
+					return null;
 			}
 		}
 
@@ -395,6 +500,44 @@ public class TextInterface extends TextUI implements
 		}
 	}
 
+	/**
+	 * Gets the user to choose how well a new System Player plays.
+	 * 
+	 * @return the Difficulty the user wishes the System Player to play at
+	 */
+	public Difficulty promptUserForDifficulty() {
+
+		TreeMap<Integer, String> difficulties = new TreeMap<>();
+		difficulties.put(1, "Easy (plays at random)");
+		difficulties.put(2, "Hard");
+
+		println();
+		displayMenu(difficulties);
+		println();
+		int selection = getMenuSelection("Select Difficulty", difficulties);
+
+		if (selection == 1) {
+			return Difficulty.EASY;
+		} else {
+			return Difficulty.HARD;
+		}
+	}
+
+	/**
+	 * Asks the Listener for the strategy of a new System Player, as only it
+	 * knows the Board being played on.
+	 * 
+	 * @param difficulty
+	 *            how well the System Player should play
+	 * @return the strategy for the System Player
+	 */
+	protected MoveStrategy createStrategy(Difficulty difficulty) {
+		if (uiListener != null) {
+			return ((OXOGameUIListener) uiListener).createStrategy(difficulty);
+		}
+		return StrategyFactory.create(difficulty, new Board());
+	}
+
 	/**
 	 * Gets the user to enter a valid name for the new Player.
 	 * 
@@ -409,7 +552,9 @@ public class TextInterface extends TextUI implements
 			println();
 			name = getStringInput("Name");
 
-			if (!Player.isNameValid(name)) {
+			if (name != null && Player.isNameTooLong(name)) {
+				printError("Player Name is too long, try again...");
+			} else if (!Player.isNameValid(name)) {
 				printError("Player Name is Not Valid, try again...");
 			} else if (!Player.isNameUnique(name)) {
 				printError("Player Name already exists, try again...");
@@ -422,6 +567,28 @@ public class TextInterface extends TextUI implements
 
 	}
 
+	/**
+	 * Gets the user to choose a page of the player select menu.
+	 * 
+	 * @param pages
+	 *            the number of pages in the menu
+	 * @return the chosen page, starting from 1
+	 */
+	protected int promptUserForPage(int pages) {
+		int page;
+
+		while (true) {
+			println();
+			page = getIntInput("Page (1-" + pages + ")");
+
+			if (page >= 1 && page <= pages) {
+				return page;
+			}
+
+			printError(Strings.Error.INVALID_SELECTION.toString());
+		}
+	}
+
 	/**
 	 * Displays a list of available Tokens and gets the user to choose one that
 	 * will be used by the new Player
@@ -471,49 +638,112 @@ public class TextInterface extends TextUI implements
 	 */
 	@Override
 	public MoveEvent promptPlayerForNextMove(Player player, Board board) {
+		Square square;
+
+		do {
+			String coordinates = getStringInput(MOVE_PROMPT);
+
+			if (isTakeBackKeyword(coordinates)) {
+				takeBack(board);
+				square = null;
+			} else {
+				square = parseMove(coordinates, board);
+			}
+		} while (square == null);
+
+		return player.getMoveEvent(board,
+				board.getIndex(square.getXcoord(), square.getYcoord()));
+
+	}
+
+	/**
+	 * Checks to see if the user has asked to take back their last move.
+	 * 
+	 * @param input
+	 *            the line entered by the user
+	 * @return true if the line is the take back keyword false otherwise
+	 */
+	protected boolean isTakeBackKeyword(String input) {
+		return input.equalsIgnoreCase(TAKE_BACK_KEYWORD);
+	}
+
+	/**
+	 * Asks the controller to take back the user's last move, and shows the
+	 * Board as it was before it.
+	 * 
+	 * @param board
+	 *            the Board the moves are taken back on
+	 */
+	protected void takeBack(Board board) {
+
+		if (uiListener != null
+				&& ((OXOGameUIListener) uiListener).takeBack()) {
+			renderMessage("Your last move has been taken back");
+			renderBoard(board);
+		} else {
+			printError("There is no move to take back");
+		}
+	}
+
+	/**
+	 * Reads a move from the coordinates entered by the user, which can be in
+	 * the form of xy, x,y or single digits with any one separator between
+	 * them, such as x y. Tells the user why if the move is not valid.
+	 * 
+	 * @param coordinates
+	 *            the coordinates entered by the user
+	 * @param board
+	 *            the Board which is used to check that the move is valid
+	 * @return the Square the user chose, or null if the move is not valid
+	 */
+	protected Square parseMove(String coordinates, Board board) {
 		boolean valid = false;
-		String coordinates;
 		int x = -1;
 		int y = -1;
 
-		while (!valid) {
-			coordinates = getStringInput("x,y");
-
-			// coordinates can be in the form of xy
-			if (coordinates.length() == 2) {
-				// check supplied coordinates are valid
-				if (canParseInt(coordinates.substring(0, 1))
-						&& canParseInt(coordinates.substring(1, 2))) {
-					x = parseInt(coordinates.substring(0, 1));
-					y = parseInt(coordinates.substring(1, 2));
-					valid = true;
-				}
-
-				// or coordinates can be in the form of x,y
-			} else if (coordinates.length() == 3) {
-				if (canParseInt(coordinates.substring(0, 1))
-						&& canParseInt(coordinates.substring(2, 3))) {
-					x = parseInt(coordinates.substring(0, 1));
-					y = parseInt(coordinates.substring(2, 3));
-					valid = true;
-				}
+		// coordinates can be in the form of xy
+		if (coordinates.length() == 2
+				&& (board.getRows() <= 10 && board.getCols() <= 10)) {
+			// check supplied coordinates are valid
+			if (canParseInt(coordinates.substring(0, 1))
+					&& canParseInt(coordinates.substring(1, 2))) {
+				x = parseInt(coordinates.substring(0, 1));
+				y = parseInt(coordinates.substring(1, 2));
+				valid = true;
 			}
 
-			if (valid && board.isRowValid(x) && board.isColValid(y)) {
-
-				if (!board.canPlaceToken(x, y)) {
-					printError("Selected location already contains a token, try again...");
-					valid = false;
-				}
-			} else {
-				printError(Strings.Error.INVALID_INPUT.toString());
-				valid = false;
+			// or coordinates can be in the form of x,y
+		} else if (coordinates.indexOf(',') > 0) {
+			String[] xy = coordinates.split(",");
+			if (xy.length == 2 && canParseInt(xy[0].trim())
+					&& canParseInt(xy[1].trim())) {
+				x = parseInt(xy[0].trim());
+				y = parseInt(xy[1].trim());
+				valid = true;
 			}
 
+			// or single digits with any other separator, such as x y or x-y
+		} else if (coordinates.length() == 3) {
+			if (canParseInt(coordinates.substring(0, 1))
+					&& canParseInt(coordinates.substring(2, 3))) {
+				x = parseInt(coordinates.substring(0, 1));
+				y = parseInt(coordinates.substring(2, 3));
+				valid = true;
+			}
 		}
 
-		return new MoveEvent(board.getSquare(x, y), player.getToken());
+		if (valid && board.isRowValid(x) && board.isColValid(y)) {
+
+			if (!board.canPlaceToken(x, y)) {
+				printError("Selected location already contains a token, try again...");
+				return null;
+			}
+		} else {
+			printError(Strings.Error.INVALID_INPUT.toString());
+			return null;
+		}
 
+		return board.getSquare(x, y);
 	}
 
 	/**
@@ -0,0 +1,17 @@
+package util;
+
+/**
+ * Thrown by the user interface once the user has asked to quit, after the
+ * UIListener has been told, so that whatever was waiting on the user's input
+ * is abandoned rather than left waiting for input that will never come.
+ *
+ * @author David Hemming
+ */
+public class QuitException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public QuitException() {
+        super(Strings.Exception.QUIT_KEYWORD_ENTERED.toString());
+    }
+}
@@ -52,7 +52,7 @@ public class Strings {
         INVALID_PLAYER_NAME;
         
         private static final ResourceBundle rb
-                = ResourceBundle.getBundle("util.Errors");
+                = ResourceBundle.getBundle("util.errors");
         
         /**
          *
@@ -79,7 +79,7 @@ public class Strings {
         QUIT_KEYWORD_ENTERED;
         
         private static final ResourceBundle rb
-                = ResourceBundle.getBundle("util.Exceptions");
+                = ResourceBundle.getBundle("util.exceptions");
         
         /**
          *
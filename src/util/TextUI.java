@@ -1,5 +1,7 @@
 package util;
 
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.Scanner;
@@ -25,6 +27,8 @@ public abstract class TextUI {
     protected UIListener uiListener;
 
     private Scanner scan;
+    private final PrintStream out;
+    private final PrintStream err;
 //    private Quit quit;
     // The keyword that the user will enter when they wish to quit the program.
     private String quitKeyword;
@@ -34,24 +38,79 @@ public abstract class TextUI {
     private String preString;
 
     /**
+     * Creates a user interface on the console.
      *
      */
     protected TextUI() {
-        scan = new Scanner(System.in);
+        this(System.in, System.out, System.err);
+    }
+
+    /**
+     * Creates a user interface that reads from and writes to the supplied
+     * streams, such as those of a network connection.
+     *
+     * @param in    the stream the user's input is read from
+     * @param out   the stream output is written to
+     * @param err   the stream error messages are written to
+     */
+    protected TextUI(InputStream in, PrintStream out, PrintStream err) {
+        this(out, err);
+        scan = new Scanner(in);
+    }
+
+    /**
+     * Creates a user interface that writes to the supplied streams and gets
+     * its input some other way.  Subclasses using this constructor must
+     * override readLine.
+     *
+     * @param out   the stream output is written to
+     * @param err   the stream error messages are written to
+     */
+    protected TextUI(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
 //        quit = new Quit();
         quitKeyword = "quit";
         preString = "\t";
     }
 
     /**
-     * Actions a quit event by calling the Controllers quit method.
+     * Actions a quit event by calling the Controllers quit method, then
+     * abandons whatever was waiting on the user's input.
      *
+     * @throws QuitException    always
      */
-    private void fireQuitEvent() {
+    protected void fireQuitEvent() {
         if (uiListener != null) {
             uiListener.quit();
         }
 //        uiListener.quit();
+        throw new QuitException();
+    }
+
+    /**
+     * Reads the next line of the user's input.  The user is treated as having
+     * quit if the input has ended.
+     *
+     * @return  the line of input
+     */
+    protected String readLine() {
+        flush();
+
+        if (!scan.hasNextLine()) {
+            fireQuitEvent();
+        }
+
+        return scan.nextLine();
+    }
+
+    /**
+     * Sends any output that is still buffered to the user.
+     *
+     */
+    protected void flush() {
+        out.flush();
+        err.flush();
     }
 
 //    protected void quit() {
@@ -73,7 +132,7 @@ public abstract class TextUI {
 
         do {
             print(prompt + ": ");
-            input = scan.nextLine();
+            input = readLine();
 
             if (input.equals("")) {
                 printError(Strings.Error.INVALID_INPUT.toString());
@@ -177,7 +236,7 @@ public abstract class TextUI {
 
         do {
             print(prompt + ": ");
-            input = scan.nextLine();
+            input = readLine();
 
             try {
                 intInput = Integer.parseInt(input);
@@ -243,7 +302,7 @@ public abstract class TextUI {
      * @return      true if the String matches the quit keyword
      *              false otherwise
      */
-    private boolean isQuitKeyword(String word) {
+    protected boolean isQuitKeyword(String word) {
         return quitKeyword != null && word.equals(quitKeyword);
     }
 
@@ -267,7 +326,7 @@ public abstract class TextUI {
      *
      */
     protected void println() {
-        System.out.println();
+        out.println();
     }
 
     /**
@@ -277,14 +336,14 @@ public abstract class TextUI {
      * @param line  the String to print to the console
      */
     protected void println(String line) {
-        System.out.println(preString + line);
+        out.println(preString + line);
     }
 
     /**
      *
      */
     protected void print() {
-        System.out.print(preString);
+        out.print(preString);
     }
 
     /**
@@ -294,7 +353,7 @@ public abstract class TextUI {
      * @param line
      */
     protected void print(String line) {
-        System.out.print(preString + line);
+        out.print(preString + line);
     }
 
     /**
@@ -302,7 +361,7 @@ public abstract class TextUI {
      *
      */
     protected void printDiv() {
-        System.out.println(preString + "-----------------------------------------");
+        out.println(preString + "-----------------------------------------");
     }
 
     /**
@@ -311,8 +370,8 @@ public abstract class TextUI {
      *
      * @param line  the String to print to the console
      */
-    protected static void printPlain(String line) {
-        System.out.print(line);
+    protected void printPlain(String line) {
+        out.print(line);
     }
 
     /**
@@ -322,7 +381,7 @@ public abstract class TextUI {
      * @param errorMessage
      */
     protected void printError(String errorMessage) {
-        System.err.println(preString + errorMessage);
+        err.println(preString + errorMessage);
     }
 
     /**
@@ -340,7 +399,7 @@ public abstract class TextUI {
      * @param headerText    the text of the header
      */
     protected void printHeader(String headerText) {
-        System.out.println(getHeader(headerText, TEXT_ALIGN.LEFT));
+        out.println(getHeader(headerText, TEXT_ALIGN.LEFT));
     }
 
     /**
@@ -350,7 +409,7 @@ public abstract class TextUI {
      * @param textAlign     the alignment of the header text
      */
     protected void printHeader(String headerText, TEXT_ALIGN textAlign) {
-        System.out.println(getHeader(headerText, textAlign));
+        out.println(getHeader(headerText, textAlign));
     }
 
     /**
@@ -394,7 +453,7 @@ public abstract class TextUI {
         s += "\n";
         s += preString + "|" + getRepeatedCharString('_', MESSAGE_WIDTH) + "|";
 
-        System.out.println(s);
+        out.println(s);
 
     }
 